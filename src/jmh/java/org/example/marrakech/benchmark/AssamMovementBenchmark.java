@@ -0,0 +1,64 @@
+package org.example.marrakech.benchmark;
+
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.game.AssamMovementTable;
+import org.example.marrakech.game.Direction;
+import org.example.marrakech.repository.GameRepository;
+import org.example.marrakech.service.GameService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Перемещение Ассама и бросок кубика. Ассам всегда идет прямо, поэтому разворот на 180 градусов
+ * не случается, а выход за край поля проходит через таблицу переходов как в настоящей партии.
+ * Бросок кубика зависит от номера хода, поэтому бенчмарк броска каждый раз переходит к следующему ходу
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssamMovementBenchmark {
+
+  private GameService gameService;
+  private Game game;
+  private int roll;
+
+  private int x;
+  private int y;
+  private Direction direction;
+
+  @Setup
+  public void setUp() {
+    gameService = new GameService(InMemoryRepositories.fake(GameRepository.class), event -> {});
+    game = BenchmarkGames.game(0);
+    x = 3;
+    y = 3;
+    direction = Direction.fromName("up");
+  }
+
+  @Benchmark
+  public Game moveAssam() {
+    roll = roll % AssamMovementTable.MAX_ROLL + 1;
+    gameService.moveAssam(game, game.getAssamDirection(), roll);
+    return game;
+  }
+
+  @Benchmark
+  public int movementTable() {
+    roll = roll % AssamMovementTable.MAX_ROLL + 1;
+    int state = AssamMovementTable.move(x, y, direction, roll);
+    x = AssamMovementTable.x(state);
+    y = AssamMovementTable.y(state);
+    direction = AssamMovementTable.direction(state);
+    return state;
+  }
+
+  @Benchmark
+  public int rollDice() {
+    game.setCurrentMoveNumber(game.getCurrentMoveNumber() + 1);
+    return gameService.rollDice(game);
+  }
+}
@@ -0,0 +1,183 @@
+package org.example.marrakech.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.marrakech.entity.Carpet;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.entity.GamePlayer;
+import org.example.marrakech.entity.User;
+import org.example.marrakech.game.BoardState;
+import org.example.marrakech.repository.CarpetPositionRepository;
+import org.example.marrakech.repository.GameJournalRepository;
+import org.example.marrakech.repository.GameJournalSnapshotRepository;
+import org.example.marrakech.repository.TopCarpetCell;
+import org.example.marrakech.service.GameJournal;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Игры для бенчмарков: стол из четырех игроков и поле, на которое детерминированно
+ * разложено заданное число ковров. Середина партии – 24 ковра, конец – 48 (по 12 у каждого игрока)
+ */
+final class BenchmarkGames {
+
+  static final long GAME_ID = 1L;
+  static final int PLAYERS = 4;
+
+  private static final long SEED = 20_250_301L;
+  private static final long CARPET_ID_OFFSET = 100L;
+
+  private BenchmarkGames() {
+  }
+
+  /**
+   * Число уже разложенных ковров для стадии партии ("mid" или "late")
+   */
+  static int placements(String stage) {
+    return switch (stage) {
+      case "mid" -> 24;
+      case "late" -> 48;
+      default -> throw new IllegalArgumentException("Неизвестная стадия партии: " + stage);
+    };
+  }
+
+  /**
+   * Раскладывает ковры по очереди игроков: каждый ковер ложится на две соседние клетки,
+   * выбранные генератором с фиксированным зерном
+   */
+  static BoardState board(int placements) {
+    BoardState board = new BoardState();
+    Random random = new Random(SEED);
+    for (int turn = 1; turn <= placements; turn++) {
+      int owner = (turn - 1) % PLAYERS;
+      int x = random.nextInt(BoardState.SIZE);
+      int y = random.nextInt(BoardState.SIZE - 1);
+      boolean horizontal = random.nextBoolean() && x < BoardState.SIZE - 1;
+      int secondX = horizontal ? x + 1 : x;
+      int secondY = horizontal ? y : y + 1;
+      board.place(carpetId(owner), userId(owner), owner, x, y, turn);
+      board.place(carpetId(owner), userId(owner), owner, secondX, secondY, turn);
+    }
+    return board;
+  }
+
+  /**
+   * Верхний слой поля в том виде, в каком его возвращает CarpetPositionRepository.findTopLayerByGameId
+   */
+  static List<TopCarpetCell> topLayer(BoardState board) {
+    List<TopCarpetCell> cells = new ArrayList<>();
+    for (int y = 0; y < BoardState.SIZE; y++) {
+      for (int x = 0; x < BoardState.SIZE; x++) {
+        if (!board.isEmpty(x, y)) {
+          cells.add(new Cell(x, y, board.getTopCarpetId(x, y), board.getTopOwnerId(x, y),
+              board.getTopColor(x, y), board.getTopPlacementTurn(x, y)));
+        }
+      }
+    }
+    return cells;
+  }
+
+  static CarpetPositionRepository carpetPositions(List<TopCarpetCell> topLayer) {
+    return InMemoryRepositories.fake(CarpetPositionRepository.class,
+        Map.of("findTopLayerByGameId", args -> topLayer));
+  }
+
+  /**
+   * Журнал новой игры без базы: события сериализуются так же, как при записи,
+   * а пакетная вставка ничего не делает
+   */
+  static GameJournal journal() {
+    JdbcTemplate noWrites = new JdbcTemplate() {
+      @Override
+      public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+        return new int[batchArgs.size()];
+      }
+    };
+    return new GameJournal(
+        InMemoryRepositories.fake(GameJournalRepository.class,
+            Map.of("findByIdGameIdAndIdEventNumberGreaterThanOrderByIdEventNumberAsc", args -> List.of())),
+        InMemoryRepositories.fake(GameJournalSnapshotRepository.class,
+            Map.of("findFirstByIdGameIdOrderByIdEventNumberDesc", args -> Optional.empty())),
+        noWrites,
+        new ObjectMapper());
+  }
+
+  /**
+   * Игра в процессе: игроки с разным числом монет, номер хода следует за разложенными коврами
+   */
+  static Game game(int placements) {
+    Game game = new Game();
+    game.setId(GAME_ID);
+    game.setStatus("in_progress");
+    game.setCurrentMoveNumber(placements + 1);
+    for (int owner = 0; owner < PLAYERS; owner++) {
+      User user = new User("player" + owner, "hash");
+      user.setId(userId(owner));
+      user.setPlaying(true);
+      GamePlayer player = new GamePlayer(game, user, BoardState.COLORS.get(owner));
+      player.setTurnOrder(owner);
+      player.setCoins(30 - 3 * owner);
+      game.getPlayers().add(player);
+    }
+    game.setCurrentTurn(game.getPlayers().getFirst().getUser());
+    return game;
+  }
+
+  /**
+   * Ковер игрока, который сейчас ходит
+   */
+  static Carpet currentCarpet(Game game) {
+    Carpet carpet = new Carpet();
+    carpet.setCarpetId(carpetId(0));
+    carpet.setGame(game);
+    carpet.setOwner(game.getCurrentTurn());
+    carpet.setColor(BoardState.COLORS.getFirst());
+    return carpet;
+  }
+
+  private static long carpetId(int owner) {
+    return CARPET_ID_OFFSET + owner;
+  }
+
+  private static long userId(int owner) {
+    return owner + 1L;
+  }
+
+  private record Cell(int x, int y, long carpetId, long ownerId, String color, int placementTurn)
+      implements TopCarpetCell {
+
+    @Override
+    public Integer getPositionX() {
+      return x;
+    }
+
+    @Override
+    public Integer getPositionY() {
+      return y;
+    }
+
+    @Override
+    public Long getCarpetId() {
+      return carpetId;
+    }
+
+    @Override
+    public Long getOwnerId() {
+      return ownerId;
+    }
+
+    @Override
+    public String getColor() {
+      return color;
+    }
+
+    @Override
+    public Integer getPlacementTurn() {
+      return placementTurn;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package org.example.marrakech.benchmark;
+
+import org.example.marrakech.dto.GameEndMessage;
+import org.example.marrakech.entity.Carpet;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.game.BoardState;
+import org.example.marrakech.repository.CarpetPositionRepository;
+import org.example.marrakech.repository.TopCarpetCell;
+import org.example.marrakech.service.BoardStateService;
+import org.example.marrakech.service.CarpetService;
+import org.example.marrakech.service.GameResultsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Правила, работающие с полем: расчет оплаты за клетку, проверка и размещение ковра,
+ * итоговые очки с распределением мест. Поле середины и конца партии задается параметром stage
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardRulesBenchmark {
+
+  @Param({"mid", "late"})
+  public String stage;
+
+  private GameResultsService gameResultsService;
+  private Game game;
+  private BoardState board;
+  private int cell;
+
+  @Setup
+  public void setUp() {
+    int placements = BenchmarkGames.placements(stage);
+    BoardStateService boardStateService = new BoardStateService(
+        BenchmarkGames.carpetPositions(BenchmarkGames.topLayer(BenchmarkGames.board(placements))));
+    gameResultsService = new GameResultsService(boardStateService);
+    game = BenchmarkGames.game(placements);
+    board = boardStateService.getBoard(BenchmarkGames.GAME_ID);
+  }
+
+  /**
+   * Состояние для размещения ковра. Размещение меняет поле и журнал игры, поэтому перед каждым вызовом
+   * поле перечитывается из заглушки репозитория, а журнал начинается заново.
+   * Остальные бенчмарки этой подготовки не платят
+   */
+  @State(Scope.Thread)
+  public static class Placement {
+
+    private CarpetPositionRepository carpetPositions;
+    private BoardStateService boardStateService;
+    private CarpetService carpetService;
+    private Carpet carpet;
+    private int[] cells;
+
+    @Setup(Level.Trial)
+    public void setUp(BoardRulesBenchmark benchmark) {
+      int placements = BenchmarkGames.placements(benchmark.stage);
+      List<TopCarpetCell> topLayer = BenchmarkGames.topLayer(BenchmarkGames.board(placements));
+      carpetPositions = BenchmarkGames.carpetPositions(topLayer);
+
+      boardStateService = new BoardStateService(carpetPositions);
+      carpet = BenchmarkGames.currentCarpet(BenchmarkGames.game(placements));
+      cells = findLegalPlacement(boardStateService.getBoard(BenchmarkGames.GAME_ID), carpet.getOwner().getId());
+    }
+
+    @Setup(Level.Invocation)
+    public void reloadBoard() {
+      boardStateService.evict(BenchmarkGames.GAME_ID);
+      boardStateService.getBoard(BenchmarkGames.GAME_ID);
+      // placeCarpet не отправляет дельту, публикатор нужен только placeCarpetAfterMove
+      carpetService = new CarpetService(carpetPositions, null, boardStateService, BenchmarkGames.journal());
+    }
+  }
+
+  @Benchmark
+  public int payment() {
+    cell = (cell + 1) % BoardState.CELLS;
+    int x = cell % BoardState.SIZE;
+    int y = cell / BoardState.SIZE;
+    if (board.isEmpty(x, y) || board.getTopOwnerId(x, y) == game.getCurrentTurn().getId()) {
+      return 0;
+    }
+    return board.getRegionSize(x, y);
+  }
+
+  @Benchmark
+  public Carpet placeCarpet(Placement placement) {
+    int[] cells = placement.cells;
+    placement.carpetService.placeCarpet(placement.carpet, cells[0], cells[1], cells[2], cells[3]);
+    return placement.carpet;
+  }
+
+  @Benchmark
+  public GameEndMessage finalScores() {
+    return gameResultsService.calculateFinalScores(game);
+  }
+
+  /**
+   * Ищет две соседние по горизонтали клетки, на которые текущий игрок может положить ковер:
+   * сверху нет его собственного ковра, и обе клетки не закрыты одной и той же частью чужого ковра
+   */
+  private static int[] findLegalPlacement(BoardState board, long ownerId) {
+    for (int y = 0; y < BoardState.SIZE; y++) {
+      for (int x = 0; x < BoardState.SIZE - 1; x++) {
+        if (isFreeFor(board, ownerId, x, y) && isFreeFor(board, ownerId, x + 1, y)
+            && !coversSameCarpet(board, x, y, x + 1, y)) {
+          return new int[]{x, y, x + 1, y};
+        }
+      }
+    }
+    throw new IllegalStateException("На поле нет места для ковра текущего игрока");
+  }
+
+  private static boolean isFreeFor(BoardState board, long ownerId, int x, int y) {
+    return board.isEmpty(x, y) || board.getTopOwnerId(x, y) != ownerId;
+  }
+
+  private static boolean coversSameCarpet(BoardState board, int firstX, int firstY, int secondX, int secondY) {
+    return !board.isEmpty(firstX, firstY) && !board.isEmpty(secondX, secondY)
+        && board.getTopCarpetId(firstX, firstY) == board.getTopCarpetId(secondX, secondY)
+        && board.getTopPlacementTurn(firstX, firstY) == board.getTopPlacementTurn(secondX, secondY);
+  }
+}
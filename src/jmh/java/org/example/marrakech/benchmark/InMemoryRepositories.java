@@ -0,0 +1,50 @@
+package org.example.marrakech.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Заглушки Spring Data репозиториев для бенчмарков. Реализация – динамический прокси без записи вызовов,
+ * чтобы в замерах не было накладных расходов mock-библиотек. Метод save возвращает переданную сущность,
+ * методы из answers отвечают заданной функцией, остальные возвращают значение по умолчанию
+ */
+final class InMemoryRepositories {
+
+  private InMemoryRepositories() {
+  }
+
+  static <R> R fake(Class<R> type) {
+    return fake(type, Map.of());
+  }
+
+  static <R> R fake(Class<R> type, Map<String, Function<Object[], Object>> answers) {
+    Object repository = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+      Function<Object[], Object> answer = answers.get(method.getName());
+      if (answer != null) {
+        return answer.apply(args);
+      }
+      return switch (method.getName()) {
+        case "save" -> args[0];
+        case "hashCode" -> System.identityHashCode(proxy);
+        case "equals" -> proxy == args[0];
+        case "toString" -> "InMemory" + type.getSimpleName();
+        default -> defaultValue(method.getReturnType());
+      };
+    });
+    return type.cast(repository);
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,102 @@
+package org.example.marrakech.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.marrakech.dto.CarpetPlacementAfterMoveRequest;
+import org.example.marrakech.dto.JoinGameResponse;
+import org.example.marrakech.dto.MoveResponse;
+import org.example.marrakech.dto.TurnResultResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * REST-клиент игровых эндпоинтов для генератора нагрузки.
+ * Ошибки сети не бросаются, а возвращаются ответом со статусом 0
+ */
+final class ApiClient {
+
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+  /**
+   * Ответ эндпоинта: HTTP-статус и тело, если запрос выполнен успешно
+   */
+  record Response<T>(int status, T body) {
+
+    boolean ok() {
+      return status >= 200 && status < 300;
+    }
+
+    /**
+     * Отказ сервера или сети, в отличие от отклоненного правилами хода (4xx)
+     */
+    boolean failed() {
+      return status == 0 || status >= 500;
+    }
+  }
+
+  private final String baseUrl;
+  private final HttpClient httpClient;
+  private final ObjectMapper objectMapper;
+
+  ApiClient(String baseUrl, ObjectMapper objectMapper) {
+    this.baseUrl = baseUrl;
+    this.objectMapper = objectMapper;
+    this.httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+  }
+
+  Response<Void> register(String username, String password) {
+    return post("/api/auth/register", Map.of("username", username, "password", password), Void.class);
+  }
+
+  Response<JoinGameResponse> join(String username) {
+    return post("/api/lobby/join?username=" + encode(username), null, JoinGameResponse.class);
+  }
+
+  Response<MoveResponse> move(long gameId, String direction) {
+    return post("/api/turn/move?gameId=" + gameId + "&movementDirection=" + direction, null, MoveResponse.class);
+  }
+
+  Response<Void> placeCarpet(CarpetPlacementAfterMoveRequest request) {
+    return post("/api/carpets/placeAfterMove", request, Void.class);
+  }
+
+  Response<TurnResultResponse> switchTurn(long gameId) {
+    return post("/api/turn/switch?gameId=" + gameId, null, TurnResultResponse.class);
+  }
+
+  private <T> Response<T> post(String path, Object body, Class<T> responseType) {
+    try {
+      HttpRequest.BodyPublisher publisher = body == null
+          ? HttpRequest.BodyPublishers.noBody()
+          : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+      HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+          .timeout(REQUEST_TIMEOUT)
+          .header("Content-Type", "application/json")
+          .POST(publisher)
+          .build();
+      HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+      boolean ok = response.statusCode() >= 200 && response.statusCode() < 300;
+      T parsed = ok && responseType != Void.class ? objectMapper.readValue(response.body(), responseType) : null;
+      return new Response<>(response.statusCode(), parsed);
+    } catch (IOException e) {
+      return new Response<>(0, null);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new Response<>(0, null);
+    }
+  }
+
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+}
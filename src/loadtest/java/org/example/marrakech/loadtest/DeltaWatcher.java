@@ -0,0 +1,64 @@
+package org.example.marrakech.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Подписка одного игрока на дельты игры. Когда приходит дельта с ожидаемым номером,
+ * записывает задержку доставки от отправки команды и отмечается в ожидании драйвера
+ */
+final class DeltaWatcher implements StompFrameHandler {
+
+  /**
+   * Ожидание дельты одной команды всеми подписчиками игры
+   */
+  record Expectation(long startNanos, long minSequence, CountDownLatch delivered) {}
+
+  private final ObjectMapper objectMapper;
+  private final LatencyStats broadcastLag;
+  private final AtomicLong lastSequence;
+  private volatile Expectation expectation;
+  private Expectation recorded;
+
+  /**
+   * @param lastSequence наибольший номер дельты, полученный подписчиками игры (общий для них)
+   */
+  DeltaWatcher(ObjectMapper objectMapper, LatencyStats broadcastLag, AtomicLong lastSequence) {
+    this.objectMapper = objectMapper;
+    this.broadcastLag = broadcastLag;
+    this.lastSequence = lastSequence;
+  }
+
+  void expect(Expectation next) {
+    expectation = next;
+  }
+
+  @Override
+  public Type getPayloadType(StompHeaders headers) {
+    return byte[].class;
+  }
+
+  @Override
+  public synchronized void handleFrame(StompHeaders headers, Object payload) {
+    long sequence;
+    try {
+      sequence = objectMapper.readTree((byte[]) payload).path("sequence").asLong();
+    } catch (IOException e) {
+      return;
+    }
+    lastSequence.accumulateAndGet(sequence, Math::max);
+
+    Expectation current = expectation;
+    if (current != null && current != recorded && sequence >= current.minSequence()) {
+      recorded = current;
+      broadcastLag.record(current.startNanos());
+      current.delivered().countDown();
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package org.example.marrakech.loadtest;
+
+import org.example.marrakech.dto.CarpetPlacementAfterMoveRequest;
+import org.example.marrakech.dto.MoveResponse;
+import org.example.marrakech.dto.TurnResultResponse;
+import org.example.marrakech.game.BoardState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Играет одну партию так, как ее играют клиенты: ход Ассама, размещение ковра рядом с ним и передача хода.
+ * После каждой принятой команды ждет, пока дельта дойдет до всех подписанных игроков
+ */
+final class GameDriver implements Callable<GameDriver.Outcome> {
+
+  enum Outcome { FINISHED, TURN_LIMIT, ABORTED }
+
+  private static final long DELIVERY_TIMEOUT_MS = 5_000;
+  private static final int[][] NEIGHBOURS = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+  private static final Map<String, String> OPPOSITE = Map.of(
+      "up", "down", "down", "up", "left", "right", "right", "left");
+
+  private final ApiClient api;
+  private final long gameId;
+  private final List<DeltaWatcher> watchers;
+  private final AtomicLong lastSequence;
+  private final LoadStats stats;
+  private final int maxTurns;
+  private final Random random;
+
+  GameDriver(ApiClient api, long gameId, List<DeltaWatcher> watchers, AtomicLong lastSequence,
+             LoadStats stats, int maxTurns) {
+    this.api = api;
+    this.gameId = gameId;
+    this.watchers = watchers;
+    this.lastSequence = lastSequence;
+    this.stats = stats;
+    this.maxTurns = maxTurns;
+    this.random = new Random(gameId);
+  }
+
+  @Override
+  public Outcome call() {
+    String direction = "up";
+    for (int turn = 0; turn < maxTurns; turn++) {
+      String next = chooseDirection(direction);
+      ApiClient.Response<MoveResponse> move = command(stats.move(), () -> api.move(gameId, next));
+      if (!move.ok()) {
+        return Outcome.ABORTED;
+      }
+      MoveResponse moved = move.body();
+      direction = moved.getAssamDirection();
+
+      placeCarpet(moved);
+
+      ApiClient.Response<TurnResultResponse> switched = command(stats.switchTurn(), () -> api.switchTurn(gameId));
+      if (!switched.ok()) {
+        return Outcome.ABORTED;
+      }
+      stats.turnCompleted();
+      if ("finished".equalsIgnoreCase(switched.body().getStatus())) {
+        return Outcome.FINISHED;
+      }
+    }
+    return Outcome.TURN_LIMIT;
+  }
+
+  /**
+   * Перебирает клетки рядом с Ассамом, пока сервер не примет ковер; выбывший игрок ковер не кладет
+   */
+  private void placeCarpet(MoveResponse moved) {
+    for (int[] cells : placementCandidates(moved.getAssamPositionX(), moved.getAssamPositionY())) {
+      CarpetPlacementAfterMoveRequest request = new CarpetPlacementAfterMoveRequest();
+      request.setGameId(gameId);
+      request.setUsername(moved.getCurrentTurnUsername());
+      request.setFirstX(cells[0]);
+      request.setFirstY(cells[1]);
+      request.setSecondX(cells[2]);
+      request.setSecondY(cells[3]);
+
+      ApiClient.Response<Void> placed = command(stats.placement(), () -> api.placeCarpet(request));
+      if (placed.ok() || placed.failed()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Отправляет команду и ждет ее дельту у всех подписчиков. Отклоненная правилами команда (4xx)
+   * дельты не порождает, поэтому ожидание снимается
+   */
+  private <T> ApiClient.Response<T> command(LatencyStats latency, Supplier<ApiClient.Response<T>> call) {
+    CountDownLatch delivered = new CountDownLatch(watchers.size());
+    long start = System.nanoTime();
+    DeltaWatcher.Expectation expectation = new DeltaWatcher.Expectation(start, lastSequence.get() + 1, delivered);
+    watchers.forEach(watcher -> watcher.expect(expectation));
+
+    ApiClient.Response<T> response = call.get();
+    latency.record(start);
+    if (response.failed()) {
+      latency.fail();
+    }
+    if (!response.ok()) {
+      watchers.forEach(watcher -> watcher.expect(null));
+      return response;
+    }
+
+    try {
+      if (!delivered.await(DELIVERY_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        stats.broadcast().fail();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return response;
+  }
+
+  private String chooseDirection(String current) {
+    List<String> allowed = new ArrayList<>(List.of("up", "down", "left", "right"));
+    allowed.remove(OPPOSITE.get(current));
+    return allowed.get(random.nextInt(allowed.size()));
+  }
+
+  /**
+   * Все пары соседних клеток, первая из которых примыкает к Ассаму, в случайном порядке
+   */
+  private List<int[]> placementCandidates(int assamX, int assamY) {
+    List<int[]> candidates = new ArrayList<>();
+    for (int[] first : NEIGHBOURS) {
+      int firstX = assamX + first[0];
+      int firstY = assamY + first[1];
+      if (!BoardState.isInside(firstX, firstY)) {
+        continue;
+      }
+      for (int[] second : NEIGHBOURS) {
+        int secondX = firstX + second[0];
+        int secondY = firstY + second[1];
+        if (BoardState.isInside(secondX, secondY) && !(secondX == assamX && secondY == assamY)) {
+          candidates.add(new int[]{firstX, firstY, secondX, secondY});
+        }
+      }
+    }
+    Collections.shuffle(candidates, random);
+    return candidates;
+  }
+}
@@ -0,0 +1,53 @@
+package org.example.marrakech.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Гистограмма задержек одной операции (в микросекундах) и счетчик ее ошибок.
+ * Запись потокобезопасна: в нее пишут драйверы всех игр одновременно
+ */
+final class LatencyStats {
+
+  private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private final String name;
+  private final Histogram histogram = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+  private final AtomicLong failures = new AtomicLong();
+
+  LatencyStats(String name) {
+    this.name = name;
+  }
+
+  void record(long startNanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    histogram.recordValue(Math.min(Math.max(micros, 0), MAX_TRACKABLE_MICROS));
+  }
+
+  void fail() {
+    failures.incrementAndGet();
+  }
+
+  void print(PrintStream out) {
+    out.printf("%-12s %8d %8d %10.2f %10.2f %10.2f %10.2f%n",
+        name,
+        histogram.getTotalCount(),
+        failures.get(),
+        millis(histogram.getValueAtPercentile(50)),
+        millis(histogram.getValueAtPercentile(99)),
+        millis(histogram.getValueAtPercentile(99.9)),
+        millis(histogram.getMaxValue()));
+  }
+
+  static void printHeader(PrintStream out) {
+    out.printf("%-12s %8s %8s %10s %10s %10s %10s%n", "operation", "count", "failed", "p50 ms", "p99 ms", "p999 ms", "max ms");
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
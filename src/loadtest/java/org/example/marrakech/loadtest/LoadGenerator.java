@@ -0,0 +1,151 @@
+package org.example.marrakech.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.marrakech.dto.JoinGameResponse;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Генератор нагрузки для запущенного локально приложения. Регистрирует 4 * games игроков,
+ * рассаживает их через /api/lobby/join, подписывает каждого игрока на дельты его игры по SockJS/STOMP
+ * и играет все партии параллельно через REST-эндпоинты хода.
+ * Печатает p50/p99/p999 задержек хода, размещения ковра, передачи хода и доставки дельт.
+ * <p>
+ * Аргументы: --url (http://localhost:8080), --games (25), --max-turns (120)
+ */
+public final class LoadGenerator {
+
+  private static final int PLAYERS_PER_GAME = 4;
+  private static final String PASSWORD = "load-test";
+  /**
+   * Брокер не подтверждает SUBSCRIBE, поэтому перед первым ходом подписчикам дается время зарегистрироваться
+   */
+  private static final long SUBSCRIBE_SETTLE_MS = 500;
+
+  private LoadGenerator() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parseOptions(args);
+    String baseUrl = options.getOrDefault("url", "http://localhost:8080");
+    int games = Integer.parseInt(options.getOrDefault("games", "25"));
+    int maxTurns = Integer.parseInt(options.getOrDefault("max-turns", "120"));
+    PrintStream out = System.out;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    ApiClient api = new ApiClient(baseUrl, objectMapper);
+    String runId = Long.toString(System.currentTimeMillis(), 36);
+    List<String> usernames = IntStream.range(0, games * PLAYERS_PER_GAME)
+        .mapToObj(i -> "load-" + runId + "-" + i)
+        .toList();
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      out.printf("Регистрация %d игроков на %s%n", usernames.size(), baseUrl);
+      registerAll(executor, api, usernames);
+
+      Map<Long, List<JoinGameResponse>> seatsByGame = joinAll(executor, api, usernames);
+      List<Long> fullGames = seatsByGame.entrySet().stream()
+          .filter(entry -> entry.getValue().size() == PLAYERS_PER_GAME)
+          .map(Map.Entry::getKey)
+          .toList();
+      out.printf("Игр за полными столами: %d из %d%n", fullGames.size(), seatsByGame.size());
+
+      WebSocketStompClient stompClient = new WebSocketStompClient(
+          new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+      LoadStats stats = new LoadStats();
+      List<StompSession> sessions = new ArrayList<>();
+      List<GameDriver> drivers = new ArrayList<>();
+      for (Long gameId : fullGames) {
+        AtomicLong lastSequence = new AtomicLong();
+        List<DeltaWatcher> watchers = new ArrayList<>();
+        for (int seat = 0; seat < PLAYERS_PER_GAME; seat++) {
+          StompSession session = stompClient.connectAsync(baseUrl + "/ws", new StompSessionHandlerAdapter() {})
+              .get(10, TimeUnit.SECONDS);
+          DeltaWatcher watcher = new DeltaWatcher(objectMapper, stats.broadcast(), lastSequence);
+          session.subscribe("/topic/game/" + gameId + "/delta", watcher);
+          sessions.add(session);
+          watchers.add(watcher);
+        }
+        drivers.add(new GameDriver(api, gameId, watchers, lastSequence, stats, maxTurns));
+      }
+      Thread.sleep(SUBSCRIBE_SETTLE_MS);
+
+      out.printf("Партии: %d параллельно, STOMP-сессий: %d%n", drivers.size(), sessions.size());
+      long start = System.nanoTime();
+      Map<GameDriver.Outcome, Integer> outcomes = new EnumMap<>(GameDriver.Outcome.class);
+      for (Future<GameDriver.Outcome> outcome : executor.invokeAll(drivers)) {
+        outcomes.merge(outcome.get(), 1, Integer::sum);
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      out.printf("%nДлительность: %.1f с, ходов: %d (%.1f ходов/с), исходы партий: %s%n",
+          seconds, stats.turns(), stats.turns() / seconds, outcomes);
+      stats.print(out);
+
+      sessions.forEach(StompSession::disconnect);
+      stompClient.stop();
+    }
+  }
+
+  private static void registerAll(ExecutorService executor, ApiClient api, List<String> usernames) throws Exception {
+    List<Future<ApiClient.Response<Void>>> registrations = new ArrayList<>();
+    for (String username : usernames) {
+      registrations.add(executor.submit(() -> api.register(username, PASSWORD)));
+    }
+    for (Future<ApiClient.Response<Void>> registration : registrations) {
+      ApiClient.Response<Void> response = registration.get();
+      if (!response.ok()) {
+        throw new IllegalStateException("Регистрация не удалась, статус " + response.status());
+      }
+    }
+  }
+
+  /**
+   * Все игроки входят одновременно, матчмейкер собирает из них столы
+   */
+  private static Map<Long, List<JoinGameResponse>> joinAll(ExecutorService executor, ApiClient api,
+                                                           List<String> usernames) throws Exception {
+    List<Future<ApiClient.Response<JoinGameResponse>>> joins = new ArrayList<>();
+    for (String username : usernames) {
+      joins.add(executor.submit(() -> api.join(username)));
+    }
+
+    Map<Long, List<JoinGameResponse>> seatsByGame = new HashMap<>();
+    for (Future<ApiClient.Response<JoinGameResponse>> join : joins) {
+      ApiClient.Response<JoinGameResponse> response = join.get();
+      if (!response.ok()) {
+        throw new IllegalStateException("Вход в игру не удался, статус " + response.status());
+      }
+      seatsByGame.computeIfAbsent(response.body().getGameId(), id -> new ArrayList<>()).add(response.body());
+    }
+    return seatsByGame;
+  }
+
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Ожидался параметр вида --name value: " + args[i]);
+      }
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    return options;
+  }
+}
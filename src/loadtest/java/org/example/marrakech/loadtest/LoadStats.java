@@ -0,0 +1,49 @@
+package org.example.marrakech.loadtest;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Итоги прогона: задержки хода, размещения ковра и передачи хода, задержка доставки дельт
+ * подписчикам (от отправки команды до получения дельты) и число сыгранных ходов
+ */
+final class LoadStats {
+
+  private final LatencyStats move = new LatencyStats("move");
+  private final LatencyStats placement = new LatencyStats("placement");
+  private final LatencyStats switchTurn = new LatencyStats("switch");
+  private final LatencyStats broadcast = new LatencyStats("broadcast");
+  private final AtomicLong turns = new AtomicLong();
+
+  LatencyStats move() {
+    return move;
+  }
+
+  LatencyStats placement() {
+    return placement;
+  }
+
+  LatencyStats switchTurn() {
+    return switchTurn;
+  }
+
+  LatencyStats broadcast() {
+    return broadcast;
+  }
+
+  void turnCompleted() {
+    turns.incrementAndGet();
+  }
+
+  long turns() {
+    return turns.get();
+  }
+
+  void print(PrintStream out) {
+    LatencyStats.printHeader(out);
+    move.print(out);
+    placement.print(out);
+    switchTurn.print(out);
+    broadcast.print(out);
+  }
+}
@@ -0,0 +1,59 @@
+package org.example.marrakech.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.marrakech.repository.GameRepository;
+import org.example.marrakech.service.GameLobbyService;
+import org.example.marrakech.service.GameStateWriter;
+import org.example.marrakech.websocket.GameBroadcaster;
+import org.example.marrakech.websocket.WebSocketEventListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Метрики игры. Таймеры игровых операций задаются аннотацией @Timed на методах сервисов,
+ * здесь регистрируются аспект для нее и показатели состояния сервера.
+ * Очередь clientOutboundChannel Spring Boot публикует сам как executor.queued
+ */
+@Configuration
+public class MetricsConfig {
+
+  @Bean
+  public TimedAspect timedAspect(MeterRegistry registry) {
+    return new TimedAspect(registry);
+  }
+
+  @Bean
+  public MeterBinder gameMetrics(GameRepository gameRepository,
+                                 GameLobbyService gameLobbyService,
+                                 WebSocketEventListener webSocketEventListener,
+                                 GameBroadcaster gameBroadcaster,
+                                 GameStateWriter gameStateWriter) {
+    return registry -> {
+      Gauge.builder("marrakech.games.active", gameRepository, repository -> repository.countByStatus("in_progress"))
+          .description("Игры в процессе")
+          .register(registry);
+      Gauge.builder("marrakech.lobby.waiting.seats", gameLobbyService, GameLobbyService::waitingSeats)
+          .description("Свободные места в ожидающих играх")
+          .register(registry);
+      Gauge.builder("marrakech.stomp.sessions", webSocketEventListener, WebSocketEventListener::getConnectedSessionCount)
+          .description("Подключенные STOMP-сессии")
+          .register(registry);
+      Gauge.builder("marrakech.broadcast.queued", gameBroadcaster, GameBroadcaster::getQueuedCount)
+          .description("Сообщения игр, ожидающие отправки подписчикам")
+          .register(registry);
+      FunctionCounter.builder("marrakech.broadcast.dropped", gameBroadcaster, GameBroadcaster::getDroppedCount)
+          .description("Сообщения игр, отброшенные из-за переполнения очереди отправки")
+          .register(registry);
+      Gauge.builder("marrakech.persistence.pending", gameStateWriter, GameStateWriter::getPendingCount)
+          .description("Изменения состояния игр, ожидающие записи в базу (режим write-behind)")
+          .register(registry);
+      FunctionCounter.builder("marrakech.persistence.flush.failed", gameStateWriter, GameStateWriter::getFailedFlushCount)
+          .description("Неудачные попытки записи отложенного состояния игр")
+          .register(registry);
+    };
+  }
+}
@@ -1,6 +1,9 @@
 package org.example.marrakech.config;
 
+import org.example.marrakech.websocket.DeltaFormatInterceptor;
+import org.example.marrakech.websocket.TopicSubscriptions;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
@@ -8,18 +11,39 @@ import org.springframework.web.socket.config.annotation.*;
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+  private final DeltaFormatInterceptor deltaFormatInterceptor;
+  private final TopicSubscriptions topicSubscriptions;
+
+  public WebSocketConfig(DeltaFormatInterceptor deltaFormatInterceptor, TopicSubscriptions topicSubscriptions) {
+    this.deltaFormatInterceptor = deltaFormatInterceptor;
+    this.topicSubscriptions = topicSubscriptions;
+  }
+
   @Override
   public void configureMessageBroker(MessageBrokerRegistry config) {
-    // Клиенты будут подписываться на топики, начинающиеся с /topic
-    config.enableSimpleBroker("/topic");
+    // Клиенты будут подписываться на топики, начинающиеся с /topic,
+    // ответы на команды приходят лично отправителю в /user/queue
+    config.enableSimpleBroker("/topic", "/queue");
     // Сообщения, отправляемые с клиента, будут иметь префикс /app
     config.setApplicationDestinationPrefixes("/app");
   }
 
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    // Клиенты с двоичным протоколом подписываются на двоичные топики игр;
+    // подписки считаются уже после выбора формата
+    registration.interceptors(deltaFormatInterceptor, topicSubscriptions);
+  }
+
   @Override
   public void registerStompEndpoints(StompEndpointRegistry registry) {
     registry.addEndpoint("/ws")
         .setAllowedOrigins("*")
         .withSockJS();
+    // Двоичные дельты – только через чистый WebSocket: SockJS портит двоичные кадры.
+    // Сжатие permessage-deflate согласует контейнер сервлетов, оно работает и для двоичных кадров
+    registry.addEndpoint(DeltaFormatInterceptor.BINARY_ENDPOINT)
+        .setAllowedOrigins("*")
+        .addInterceptors(deltaFormatInterceptor.rawTransportHandshake());
   }
 }
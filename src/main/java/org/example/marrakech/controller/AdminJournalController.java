@@ -0,0 +1,57 @@
+package org.example.marrakech.controller;
+
+import org.example.marrakech.dto.ErrorResponse;
+import org.example.marrakech.dto.JournalEntryResponse;
+import org.example.marrakech.service.GameCommandExecutor;
+import org.example.marrakech.service.GameJournal;
+import org.example.marrakech.service.ReplayVerificationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Журнал событий игры, состояние, восстановленное по нему, и перепроверка партии для разбора спорных партий
+ */
+@RestController
+@RequestMapping("/api/admin/games/{gameId}")
+public class AdminJournalController {
+
+  private final GameJournal gameJournal;
+  private final ReplayVerificationService replayVerificationService;
+  private final GameCommandExecutor gameCommandExecutor;
+
+  public AdminJournalController(GameJournal gameJournal, ReplayVerificationService replayVerificationService,
+                                GameCommandExecutor gameCommandExecutor) {
+    this.gameJournal = gameJournal;
+    this.replayVerificationService = replayVerificationService;
+    this.gameCommandExecutor = gameCommandExecutor;
+  }
+
+  @GetMapping("/journal")
+  public List<JournalEntryResponse> journal(@PathVariable Long gameId) {
+    return gameJournal.entries(gameId);
+  }
+
+  @GetMapping("/replay")
+  public ResponseEntity<?> replay(@PathVariable Long gameId) {
+    try {
+      return ResponseEntity.ok(gameJournal.reconstructState(gameId));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+    }
+  }
+
+  /**
+   * Перепроверка партии по правилам и сверка итога с сохраненной игрой. Идет в очереди команд игры,
+   * поэтому журнал и строки читаются между ходами, а не в середине хода
+   */
+  @GetMapping("/verify")
+  public ResponseEntity<?> verify(@PathVariable Long gameId) {
+    try {
+      return ResponseEntity.ok(gameCommandExecutor.execute(gameId, () -> replayVerificationService.verify(gameId)));
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+    }
+  }
+}
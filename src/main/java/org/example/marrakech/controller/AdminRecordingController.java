@@ -0,0 +1,50 @@
+package org.example.marrakech.controller;
+
+import org.example.marrakech.dto.ErrorResponse;
+import org.example.marrakech.dto.RecordingResponse;
+import org.example.marrakech.jfr.GameRecorder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Запись JFR для разбора задержек хода по фазам. Файл записи остается на сервере
+ */
+@RestController
+@RequestMapping("/api/admin/recording")
+public class AdminRecordingController {
+
+  private final GameRecorder gameRecorder;
+
+  public AdminRecordingController(GameRecorder gameRecorder) {
+    this.gameRecorder = gameRecorder;
+  }
+
+  @PostMapping("/start")
+  public ResponseEntity<?> start(@RequestParam(defaultValue = "60") long seconds) {
+    try {
+      Path file = gameRecorder.start(Duration.ofSeconds(seconds));
+      return ResponseEntity.ok(new RecordingResponse(true, file.toString()));
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+    }
+  }
+
+  @PostMapping("/stop")
+  public ResponseEntity<?> stop() {
+    try {
+      Path file = gameRecorder.stop();
+      return ResponseEntity.ok(new RecordingResponse(false, file.toString()));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+    }
+  }
+
+  @GetMapping
+  public RecordingResponse status() {
+    Path file = gameRecorder.currentFile();
+    return new RecordingResponse(gameRecorder.isRecording(), file == null ? null : file.toString());
+  }
+}
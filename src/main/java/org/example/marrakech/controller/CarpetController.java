@@ -7,6 +7,8 @@ import org.example.marrakech.entity.User;
 import org.example.marrakech.repository.CarpetRepository;
 import org.example.marrakech.repository.GameRepository;
 import org.example.marrakech.service.CarpetService;
+import org.example.marrakech.service.GameCommandExecutor;
+import org.example.marrakech.service.OptimisticLockRetry;
 import org.example.marrakech.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,19 +21,30 @@ public class CarpetController {
   private final CarpetService carpetService;
   private final UserService userService;
   private final GameRepository gameRepository;
+  private final GameCommandExecutor gameCommandExecutor;
+  private final OptimisticLockRetry optimisticLockRetry;
 
   public CarpetController(CarpetRepository carpetRepository,
                           CarpetService carpetService,
                           UserService userService,
-                          GameRepository gameRepository) {
+                          GameRepository gameRepository,
+                          GameCommandExecutor gameCommandExecutor,
+                          OptimisticLockRetry optimisticLockRetry) {
     this.carpetRepository = carpetRepository;
     this.carpetService = carpetService;
     this.userService = userService;
     this.gameRepository = gameRepository;
+    this.gameCommandExecutor = gameCommandExecutor;
+    this.optimisticLockRetry = optimisticLockRetry;
   }
 
   @PostMapping("/placeAfterMove")
   public ResponseEntity<?> placeCarpetAfterMove(@RequestBody CarpetPlacementAfterMoveRequest request) {
+    return gameCommandExecutor.execute(request.getGameId(),
+        () -> optimisticLockRetry.execute(() -> placeCarpet(request)));
+  }
+
+  private ResponseEntity<?> placeCarpet(CarpetPlacementAfterMoveRequest request) {
     Game game = gameRepository.findById(request.getGameId())
         .orElseThrow(() -> new IllegalArgumentException("Game not found"));
 
@@ -1,8 +1,8 @@
 package org.example.marrakech.controller;
 
-import org.example.marrakech.entity.Game;
+import org.example.marrakech.dto.JoinGameResponse;
 import org.example.marrakech.entity.User;
-import org.example.marrakech.service.GameLobbyService;
+import org.example.marrakech.service.BatchMatchmaker;
 import org.example.marrakech.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -11,21 +11,21 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/lobby")
 public class GameLobbyController {
 
-  private final GameLobbyService gameLobbyService;
+  private final BatchMatchmaker batchMatchmaker;
   private final UserService userService;
 
-  public GameLobbyController(GameLobbyService gameLobbyService, UserService userService) {
-    this.gameLobbyService = gameLobbyService;
+  public GameLobbyController(BatchMatchmaker batchMatchmaker, UserService userService) {
+    this.batchMatchmaker = batchMatchmaker;
     this.userService = userService;
   }
 
   @PostMapping("/join")
   public ResponseEntity<?> joinGame(@RequestParam String username) {
-    User user = userService.findByUsername(username);
+    User user = userService.findWithCurrentGame(username);
     if (user == null) {
       return ResponseEntity.badRequest().body("User not found");
     }
-    Game game = gameLobbyService.joinGame(user);
-    return ResponseEntity.ok(game);
+    JoinGameResponse response = batchMatchmaker.join(user);
+    return ResponseEntity.ok(response);
   }
 }
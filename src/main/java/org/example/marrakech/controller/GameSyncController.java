@@ -0,0 +1,41 @@
+package org.example.marrakech.controller;
+
+import org.example.marrakech.dto.ErrorResponse;
+import org.example.marrakech.dto.ResyncResponse;
+import org.example.marrakech.service.GameCommandExecutor;
+import org.example.marrakech.service.GameSyncService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/sync")
+public class GameSyncController {
+
+  private final GameSyncService gameSyncService;
+  private final GameCommandExecutor gameCommandExecutor;
+
+  public GameSyncController(GameSyncService gameSyncService, GameCommandExecutor gameCommandExecutor) {
+    this.gameSyncService = gameSyncService;
+    this.gameCommandExecutor = gameCommandExecutor;
+  }
+
+  /**
+   * Догоняющая синхронизация после переподключения или пропуска номера дельты.
+   * Пропущенные дельты отдаются из памяти сразу; снимок читается в очереди команд игры,
+   * поэтому не попадает в середину хода
+   */
+  @GetMapping("/resync")
+  public ResponseEntity<?> resync(@RequestParam Long gameId,
+                                  @RequestParam(required = false) Long epoch,
+                                  @RequestParam(required = false) Long afterSequence) {
+    try {
+      ResyncResponse response = gameSyncService.missingDeltas(gameId, epoch, afterSequence);
+      if (response == null) {
+        response = gameCommandExecutor.execute(gameId, () -> gameSyncService.snapshot(gameId));
+      }
+      return ResponseEntity.ok(response);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+    }
+  }
+}
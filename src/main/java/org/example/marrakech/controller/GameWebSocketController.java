@@ -1,11 +1,19 @@
 package org.example.marrakech.controller;
 
+import org.example.marrakech.dto.ErrorResponse;
 import org.example.marrakech.dto.GameUpdateMessage;
+import org.example.marrakech.dto.TurnFinishRequest;
+import org.example.marrakech.dto.TurnResultResponse;
 import org.example.marrakech.entity.Game;
+import org.example.marrakech.service.GameCommandExecutor;
+import org.example.marrakech.service.GameDeltaPublisher;
 import org.example.marrakech.service.GameService;
+import org.example.marrakech.service.OptimisticLockRetry;
+import org.example.marrakech.service.TurnService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
 import java.util.Optional;
@@ -13,13 +21,23 @@ import java.util.Optional;
 @Controller
 public class GameWebSocketController {
 
-  private final SimpMessagingTemplate messagingTemplate;
+  private final GameDeltaPublisher gameDeltaPublisher;
   private final GameService gameService;
+  private final TurnService turnService;
+  private final GameCommandExecutor gameCommandExecutor;
+  private final OptimisticLockRetry optimisticLockRetry;
 
   @Autowired
-  public GameWebSocketController(SimpMessagingTemplate messagingTemplate, GameService gameService) {
-    this.messagingTemplate = messagingTemplate;
+  public GameWebSocketController(GameDeltaPublisher gameDeltaPublisher,
+                                 GameService gameService,
+                                 TurnService turnService,
+                                 GameCommandExecutor gameCommandExecutor,
+                                 OptimisticLockRetry optimisticLockRetry) {
+    this.gameDeltaPublisher = gameDeltaPublisher;
     this.gameService = gameService;
+    this.turnService = turnService;
+    this.gameCommandExecutor = gameCommandExecutor;
+    this.optimisticLockRetry = optimisticLockRetry;
   }
 
   @MessageMapping("/game/update")
@@ -28,8 +46,28 @@ public class GameWebSocketController {
     if (optionalGame.isPresent()) {
       Game game = optionalGame.get();
       String currentTurnUsername = game.getCurrentTurn() != null ? game.getCurrentTurn().getUsername() : "none";
-      GameUpdateMessage update = new GameUpdateMessage(game.getId(), game.getStatus(), currentTurnUsername);
-      messagingTemplate.convertAndSend("/topic/game/" + game.getId(), update);
+      gameDeltaPublisher.update(game, delta -> {
+        delta.setStatus(game.getStatus());
+        delta.setCurrentTurnUsername(currentTurnUsername);
+      });
     }
   }
+
+  /**
+   * Завершает ход через STOMP без отдельного HTTP-запроса.
+   * Итог хода приходит только отправителю в /user/queue/turn, остальные игроки
+   * получают обычные уведомления в топиках игры
+   */
+  @MessageMapping("/game/turn/finish")
+  @SendToUser("/queue/turn")
+  public TurnResultResponse finishTurn(TurnFinishRequest request) {
+    return gameCommandExecutor.execute(request.getGameId(),
+        () -> optimisticLockRetry.execute(() -> turnService.finishTurn(request)));
+  }
+
+  @MessageExceptionHandler(IllegalArgumentException.class)
+  @SendToUser("/queue/errors")
+  public ErrorResponse handleCommandError(IllegalArgumentException e) {
+    return new ErrorResponse(e.getMessage());
+  }
 }
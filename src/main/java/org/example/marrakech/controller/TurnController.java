@@ -2,7 +2,10 @@ package org.example.marrakech.controller;
 
 import org.example.marrakech.dto.ErrorResponse;
 import org.example.marrakech.dto.MoveResponse;
-import org.example.marrakech.entity.Game;
+import org.example.marrakech.dto.TurnFinishRequest;
+import org.example.marrakech.dto.TurnResultResponse;
+import org.example.marrakech.service.GameCommandExecutor;
+import org.example.marrakech.service.OptimisticLockRetry;
 import org.example.marrakech.service.TurnService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,9 +15,15 @@ import org.springframework.web.bind.annotation.*;
 public class TurnController {
 
   private final TurnService turnService;
+  private final GameCommandExecutor gameCommandExecutor;
+  private final OptimisticLockRetry optimisticLockRetry;
 
-  public TurnController(TurnService turnService) {
+  public TurnController(TurnService turnService,
+                        GameCommandExecutor gameCommandExecutor,
+                        OptimisticLockRetry optimisticLockRetry) {
     this.turnService = turnService;
+    this.gameCommandExecutor = gameCommandExecutor;
+    this.optimisticLockRetry = optimisticLockRetry;
   }
 
   /**
@@ -25,7 +34,23 @@ public class TurnController {
   public ResponseEntity<?> completeMove(@RequestParam Long gameId,
                                         @RequestParam String movementDirection) {
     try {
-      MoveResponse response = turnService.completeMove(gameId, movementDirection);
+      MoveResponse response = gameCommandExecutor.execute(gameId,
+          () -> optimisticLockRetry.execute(() -> turnService.completeMove(gameId, movementDirection)));
+      return ResponseEntity.ok(response);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+    }
+  }
+
+  /**
+   * Завершает ход одной командой: размещение ковра, проверка окончания игры и передача хода.
+   * Заменяет последовательность /api/carpets/placeAfterMove и /api/turn/switch
+   */
+  @PostMapping("/finish")
+  public ResponseEntity<?> finishTurn(@RequestBody TurnFinishRequest request) {
+    try {
+      TurnResultResponse response = gameCommandExecutor.execute(request.getGameId(),
+          () -> optimisticLockRetry.execute(() -> turnService.finishTurn(request)));
       return ResponseEntity.ok(response);
     } catch (IllegalArgumentException e) {
       return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
@@ -33,8 +58,9 @@ public class TurnController {
   }
 
   @PostMapping("/switch")
-  public ResponseEntity<Game> switchTurn(@RequestParam Long gameId) {
-    Game updatedGame = turnService.switchTurn(gameId);
-    return ResponseEntity.ok(updatedGame);
+  public ResponseEntity<TurnResultResponse> switchTurn(@RequestParam Long gameId) {
+    TurnResultResponse response = gameCommandExecutor.execute(gameId,
+        () -> optimisticLockRetry.execute(() -> turnService.switchTurn(gameId)));
+    return ResponseEntity.ok(response);
   }
 }
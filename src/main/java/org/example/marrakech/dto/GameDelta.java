@@ -0,0 +1,68 @@
+package org.example.marrakech.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Все изменения игры за одну команду. Отправляется одним сообщением в /topic/game/{id}/delta,
+ * незаполненные поля не сериализуются
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameDelta {
+  private Long gameId;
+  // Эпоха истории дельт: меняется, когда нумерация начинается заново (перезапуск сервера, вытеснение истории)
+  private Long epoch;
+  // Порядковый номер изменения в эпохе; пропуск номера означает потерянное сообщение
+  private Long sequence;
+  // Версия игры после коммита команды
+  private Long version;
+
+  private String status;
+  private String currentTurnUsername;
+  private Integer moveNumber;
+  private String winnerUsername;
+
+  private Integer diceRoll;
+  private Integer assamPositionX;
+  private Integer assamPositionY;
+  private String assamDirection;
+
+  private List<PaymentNotificationMessage> payments;
+  private CarpetPlacedMessage carpet;
+  // Клетки, у которых сменился верхний слой; null в цвете – клетка опустела
+  private List<FieldUpdateMessage.CellUpdate> fieldUpdates;
+  private List<String> eliminatedUsernames;
+  private String leftUsername;
+  private List<PlayerScore> results;
+
+  public GameDelta(Long gameId) {
+    this.gameId = gameId;
+  }
+
+  public void addPayment(PaymentNotificationMessage payment) {
+    if (payments == null) {
+      payments = new ArrayList<>();
+    }
+    payments.add(payment);
+  }
+
+  public void addFieldUpdates(List<FieldUpdateMessage.CellUpdate> updates) {
+    if (fieldUpdates == null) {
+      fieldUpdates = new ArrayList<>();
+    }
+    fieldUpdates.addAll(updates);
+  }
+
+  public void addEliminated(String username) {
+    if (eliminatedUsernames == null) {
+      eliminatedUsernames = new ArrayList<>();
+    }
+    eliminatedUsernames.add(username);
+  }
+}
@@ -0,0 +1,42 @@
+package org.example.marrakech.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Полное состояние игры для клиента, который не может догнать изменения по дельтам.
+ * После снимка клиент применяет дельты эпохи epoch с номерами больше sequence
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameSnapshot {
+  private Long gameId;
+  private long epoch;
+  private long sequence;
+  private Long version;
+  private String status;
+  private String currentTurnUsername;
+  private int moveNumber;
+  private int assamPositionX;
+  private int assamPositionY;
+  private String assamDirection;
+  private List<PlayerState> players;
+  // 49 символов по строкам (индекс y * 7 + x): '.' – пустая клетка, иначе первая буква цвета верхнего ковра
+  private String board;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class PlayerState {
+    // Номер места (turn_order), им обозначается игрок в двоичном протоколе
+    private int slot;
+    private String username;
+    private String color;
+    private int coins;
+    private boolean playing;
+  }
+}
@@ -0,0 +1,17 @@
+package org.example.marrakech.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JoinGameResponse {
+  private Long gameId;
+  private String status;
+  // Место игрока за столом, оно же порядок хода
+  private int seat;
+  private String color;
+  private String currentTurnUsername;
+}
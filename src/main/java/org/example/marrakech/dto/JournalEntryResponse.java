@@ -0,0 +1,23 @@
+package org.example.marrakech.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Событие журнала игры для разбора партии. Тело события – как в журнале, только зерно кубика
+ * в старте игры до ее конца заменено хешем (diceSeedHash)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntryResponse {
+  private long eventNumber;
+  private int moveNumber;
+  private String type;
+  private JsonNode event;
+  private Instant createdAt;
+}
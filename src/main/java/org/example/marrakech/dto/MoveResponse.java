@@ -3,12 +3,21 @@ package org.example.marrakech.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.example.marrakech.entity.Game;
 
+/**
+ * Итог перемещения Ассама. Собирается из уже загруженного состояния игры,
+ * сущность Game наружу не отдается
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class MoveResponse {
-  private Game game;
+  private Long gameId;
+  private String status;
   private int diceRoll;
+  private int assamPositionX;
+  private int assamPositionY;
+  private String assamDirection;
+  private String currentTurnUsername;
+  private int moveNumber;
 }
@@ -5,9 +5,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
-public class PlayerEliminatedMessage {
-  private Long gameId;
-  private String eliminatedUsername;
+@AllArgsConstructor
+public class RecordingResponse {
+  private boolean recording;
+  private String file;
 }
@@ -0,0 +1,20 @@
+package org.example.marrakech.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Итог перепроверки игры по журналу: расхождения с правилами и с сохраненным состоянием игры
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplayVerificationResponse {
+  private Long gameId;
+  private int eventsChecked;
+  private boolean consistent;
+  private List<String> mismatches;
+}
@@ -0,0 +1,23 @@
+package org.example.marrakech.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ответ на запрос догоняющей синхронизации: либо пропущенные дельты, либо полный снимок.
+ * Эпоха – та, в которой нумеруются дельты ответа и следующие за ними
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResyncResponse {
+  private Long gameId;
+  private Long epoch;
+  private List<GameDelta> deltas;
+  private GameSnapshot snapshot;
+}
@@ -0,0 +1,15 @@
+package org.example.marrakech.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class TurnFinishRequest {
+  private Long gameId;
+  private String username;
+  private int firstX;
+  private int firstY;
+  private int secondX;
+  private int secondY;
+}
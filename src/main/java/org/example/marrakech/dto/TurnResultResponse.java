@@ -7,8 +7,10 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class GameStatusUpdateMessage {
+public class TurnResultResponse {
   private Long gameId;
   private String status;
+  // Игрок, который ходит следующим
   private String currentTurnUsername;
+  private int moveNumber;
 }
@@ -16,11 +16,11 @@ public class Carpet {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long carpetId;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "game_id", nullable = false)
   private Game game;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "owner_id", nullable = false)
   private User owner;
 
@@ -16,10 +16,13 @@ public class CarpetPosition {
   private CarpetPositionId id;
 
   @MapsId("carpetId")
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "carpet_id", nullable = false)
   private Carpet carpet;
 
+  @Column(name = "game_id", nullable = false)
+  private Long gameId;
+
   @Column(name = "placement_turn", nullable = false)
   private Integer placementTurn;
 }
@@ -1,6 +1,7 @@
 package org.example.marrakech.entity;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
 import lombok.Getter;
@@ -29,25 +30,37 @@ public class Game {
   @Column(nullable = false)
   private String status; // waiting, in_progress, finished
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "current_turn")
   private User currentTurn;
 
-  @Column(name = "assam_position_x", nullable = false)
+  // Положение Ассама и номер хода пишет GameStateWriter вместе с version, JPA задает их только при создании игры
+  @Column(name = "assam_position_x", nullable = false, updatable = false)
   @ColumnDefault("3")
   private int assamPositionX = 3;
 
-  @Column(name = "assam_position_y", nullable = false)
+  @Column(name = "assam_position_y", nullable = false, updatable = false)
   @ColumnDefault("3")
   private int assamPositionY = 3;
 
-  @Column(name = "assam_direction", nullable = false)
+  @Column(name = "assam_direction", nullable = false, updatable = false)
   private String assamDirection = "up";
 
-  @Column(name = "current_move_number", nullable = false)
+  @Column(name = "current_move_number", nullable = false, updatable = false)
   @ColumnDefault("1")
   private int currentMoveNumber = 1;
 
+  /**
+   * Зерно кубика игры: бросок на каждом ходу определяется им и номером хода (см. Dice), наружу не отдается
+   */
+  @JsonIgnore
+  @Column(name = "dice_seed", nullable = false, updatable = false)
+  private long diceSeed;
+
+  @Version
+  @Column(name = "version", nullable = false)
+  private Long version;
+
   @OneToMany(mappedBy = "game", cascade = CascadeType.ALL, orphanRemoval = true)
   private List<GamePlayer> players = new ArrayList<>();
 }
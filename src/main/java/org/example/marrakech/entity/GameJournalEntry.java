@@ -0,0 +1,38 @@
+package org.example.marrakech.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Событие журнала игры. Журнал только дополняется, строки в нем не изменяются.
+ * Пишет журнал {@link org.example.marrakech.service.GameJournal}, здесь он только читается
+ */
+@Entity
+@Table(name = "game_journal")
+@Getter
+@Setter
+@NoArgsConstructor
+public class GameJournalEntry {
+
+  @EmbeddedId
+  private GameJournalEntryId id;
+
+  @Column(name = "move_number", nullable = false, updatable = false)
+  private int moveNumber;
+
+  /**
+   * Тип события – простое имя записи {@link org.example.marrakech.game.GameEvent}
+   */
+  @Column(name = "event_type", nullable = false, updatable = false, length = 32)
+  private String eventType;
+
+  @Column(name = "payload", nullable = false, updatable = false, columnDefinition = "TEXT")
+  private String payload;
+
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private Instant createdAt;
+}
@@ -0,0 +1,28 @@
+package org.example.marrakech.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.io.Serializable;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class GameJournalEntryId implements Serializable {
+
+  @Column(name = "game_id")
+  private Long gameId;
+
+  /**
+   * Номер события в игре, начиная с 1
+   */
+  @Column(name = "event_number")
+  private long eventNumber;
+}
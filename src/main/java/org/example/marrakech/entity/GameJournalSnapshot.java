@@ -0,0 +1,27 @@
+package org.example.marrakech.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Снимок состояния игры после события журнала с тем же номером.
+ * Восстановление начинается с последнего снимка и применяет только события после него
+ */
+@Entity
+@Table(name = "game_journal_snapshots")
+@Getter
+@Setter
+@NoArgsConstructor
+public class GameJournalSnapshot {
+
+  @EmbeddedId
+  private GameJournalEntryId id;
+
+  /**
+   * {@link org.example.marrakech.game.GameReplay.Snapshot} в JSON
+   */
+  @Column(name = "state", nullable = false, updatable = false, columnDefinition = "TEXT")
+  private String state;
+}
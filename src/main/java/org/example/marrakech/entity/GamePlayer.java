@@ -13,12 +13,12 @@ public class GamePlayer {
   @EmbeddedId
   private GamePlayerId id;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @MapsId("gameId")
   @JoinColumn(name = "game_id")
   private Game game;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @MapsId("userId")
   @JoinColumn(name = "user_id")
   private User user;
@@ -26,12 +26,17 @@ public class GamePlayer {
   @Column(name = "player_color", nullable = false)
   private String playerColor;
 
-  @Column(name = "coins", nullable = false)
+  // Баланс пишет GameStateWriter вместе с version, JPA задает его только при посадке игрока
+  @Column(name = "coins", nullable = false, updatable = false)
   private int coins = 30;
 
   @Column(name = "turn_order")
   private int turnOrder;
 
+  @Version
+  @Column(name = "version", nullable = false)
+  private Long version;
+
   public GamePlayer() {}
 
   public GamePlayer(Game game, User user, String playerColor) {
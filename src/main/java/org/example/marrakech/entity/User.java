@@ -26,7 +26,7 @@ public class User {
 
   private boolean isPlaying;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "current_game_id")
   @JsonManagedReference
   private Game currentGame;
@@ -0,0 +1,137 @@
+package org.example.marrakech.game;
+
+/**
+ * Таблица переходов Ассама, построенная один раз при загрузке класса.
+ * Состояние Ассама кодируется одним числом: {@code (y * 7 + x) * 4 + direction.ordinal()}.
+ * Для каждого состояния и броска кубика в таблице хранится конечное состояние,
+ * поэтому перемещение – одно чтение из массива без создания объектов
+ */
+public final class AssamMovementTable {
+
+  public static final int MAX_ROLL = 4;
+
+  private static final int DIRECTIONS = Direction.values().length;
+  private static final int STATES = BoardState.CELLS * DIRECTIONS;
+
+  private record EdgeRule(int x, int y, Direction direction, int newX, int newY, Direction newDirection) {}
+
+  /**
+   * Правила выхода за границы поля в формате
+   * (текущая клетка, направление) → (новые координаты, новое направление).
+   * Если для клетки правило не задано, Ассам остаётся на месте
+   */
+  private static final EdgeRule[] EDGE_RULES = {
+      // верхняя граница
+      new EdgeRule(0, 0, Direction.UP, 0, 0, Direction.RIGHT),
+      new EdgeRule(0, 0, Direction.LEFT, 0, 0, Direction.DOWN),
+      new EdgeRule(1, 0, Direction.UP, 2, 0, Direction.DOWN),
+      new EdgeRule(2, 0, Direction.UP, 1, 0, Direction.DOWN),
+      new EdgeRule(3, 0, Direction.UP, 4, 0, Direction.DOWN),
+      new EdgeRule(4, 0, Direction.UP, 3, 0, Direction.DOWN),
+      new EdgeRule(5, 0, Direction.UP, 6, 0, Direction.DOWN),
+      new EdgeRule(6, 0, Direction.UP, 5, 0, Direction.DOWN),
+
+      // правая граница
+      new EdgeRule(6, 0, Direction.RIGHT, 6, 1, Direction.LEFT),
+      new EdgeRule(6, 1, Direction.RIGHT, 6, 0, Direction.LEFT),
+      new EdgeRule(6, 2, Direction.RIGHT, 6, 3, Direction.LEFT),
+      new EdgeRule(6, 3, Direction.RIGHT, 6, 2, Direction.LEFT),
+      new EdgeRule(6, 4, Direction.RIGHT, 6, 5, Direction.LEFT),
+      new EdgeRule(6, 5, Direction.RIGHT, 6, 4, Direction.LEFT),
+      new EdgeRule(6, 6, Direction.RIGHT, 6, 6, Direction.UP),
+      new EdgeRule(6, 6, Direction.DOWN, 6, 6, Direction.LEFT),
+
+      // нижняя граница
+      new EdgeRule(5, 6, Direction.DOWN, 4, 6, Direction.UP),
+      new EdgeRule(4, 6, Direction.DOWN, 5, 6, Direction.UP),
+      new EdgeRule(3, 6, Direction.DOWN, 2, 6, Direction.UP),
+      new EdgeRule(2, 6, Direction.DOWN, 3, 6, Direction.UP),
+      new EdgeRule(1, 6, Direction.DOWN, 0, 6, Direction.UP),
+      new EdgeRule(0, 6, Direction.DOWN, 1, 6, Direction.UP),
+
+      // левая граница
+      new EdgeRule(0, 6, Direction.LEFT, 0, 5, Direction.RIGHT),
+      new EdgeRule(0, 4, Direction.LEFT, 0, 3, Direction.RIGHT),
+      new EdgeRule(0, 2, Direction.LEFT, 0, 1, Direction.RIGHT),
+  };
+
+  private static final short[] TRANSITIONS = buildTransitions();
+
+  private AssamMovementTable() {
+  }
+
+  public static int encode(int x, int y, Direction direction) {
+    return BoardState.index(x, y) * DIRECTIONS + direction.ordinal();
+  }
+
+  public static int x(int state) {
+    return (state / DIRECTIONS) % BoardState.SIZE;
+  }
+
+  public static int y(int state) {
+    return (state / DIRECTIONS) / BoardState.SIZE;
+  }
+
+  public static Direction direction(int state) {
+    return Direction.ofOrdinal(state % DIRECTIONS);
+  }
+
+  /**
+   * Возвращает конечное состояние Ассама после перемещения
+   *
+   * @param x         текущая координата x
+   * @param y         текущая координата y
+   * @param direction направление движения
+   * @param diceRoll  число шагов (от 0 до {@link #MAX_ROLL})
+   * @return закодированное конечное состояние
+   */
+  public static int move(int x, int y, Direction direction, int diceRoll) {
+    if (!BoardState.isInside(x, y)) {
+      throw new IllegalArgumentException("Ассам вне поля 7x7");
+    }
+    if (diceRoll < 0 || diceRoll > MAX_ROLL) {
+      throw new IllegalArgumentException("Недопустимое значение кубика: " + diceRoll);
+    }
+    return TRANSITIONS[encode(x, y, direction) * (MAX_ROLL + 1) + diceRoll];
+  }
+
+  private static short[] buildTransitions() {
+    int[] oneStep = new int[STATES];
+    for (int state = 0; state < STATES; state++) {
+      oneStep[state] = stepOnce(state);
+    }
+
+    short[] transitions = new short[STATES * (MAX_ROLL + 1)];
+    for (int state = 0; state < STATES; state++) {
+      int current = state;
+      transitions[state * (MAX_ROLL + 1)] = (short) current;
+      for (int roll = 1; roll <= MAX_ROLL; roll++) {
+        current = oneStep[current];
+        transitions[state * (MAX_ROLL + 1) + roll] = (short) current;
+      }
+    }
+    return transitions;
+  }
+
+  /**
+   * Перемещает Ассама на один шаг с учетом специальных правил выхода за границы
+   */
+  private static int stepOnce(int state) {
+    int x = x(state);
+    int y = y(state);
+    Direction direction = direction(state);
+
+    int newX = x + direction.getDx();
+    int newY = y + direction.getDy();
+    if (BoardState.isInside(newX, newY)) {
+      return encode(newX, newY, direction);
+    }
+
+    for (EdgeRule rule : EDGE_RULES) {
+      if (rule.x() == x && rule.y() == y && rule.direction() == direction) {
+        return encode(rule.newX(), rule.newY(), rule.newDirection());
+      }
+    }
+    return state;
+  }
+}
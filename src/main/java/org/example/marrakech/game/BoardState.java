@@ -0,0 +1,216 @@
+package org.example.marrakech.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Компактное состояние игрового поля 7x7 в памяти.
+ * Для каждой клетки хранится верхний слой: id ковра, владелец, индекс цвета и номер хода размещения.
+ * Клетка с индексом {@code y * 7 + x} соответствует биту с тем же номером в битовых масках.
+ * Для каждой клетки также поддерживается размер связной области одного ковра, в которую она входит:
+ * область пересчитывается при каждом размещении только для затронутых ковров
+ */
+public final class BoardState {
+
+  public static final int SIZE = 7;
+  public static final int CELLS = SIZE * SIZE;
+
+  /**
+   * Палитра цветов игроков, индекс цвета – позиция в этом списке
+   */
+  public static final List<String> COLORS = List.of("red", "blue", "green", "yellow");
+
+  public static final long EMPTY = 0L;
+  public static final int NO_COLOR = -1;
+
+  private static final long FULL = (1L << CELLS) - 1;
+  private static final long FIRST_COLUMN = columnMask(0);
+  private static final long LAST_COLUMN = columnMask(SIZE - 1);
+
+  private final long[] topCarpetId = new long[CELLS];
+  private final long[] topOwnerId = new long[CELLS];
+  private final byte[] topColor = new byte[CELLS];
+  private final int[] topTurn = new int[CELLS];
+  private final byte[] regionSize = new byte[CELLS];
+  private long occupied;
+
+  public BoardState() {
+    Arrays.fill(topColor, (byte) NO_COLOR);
+  }
+
+  public static int index(int x, int y) {
+    return y * SIZE + x;
+  }
+
+  public static boolean isInside(int x, int y) {
+    return x >= 0 && x < SIZE && y >= 0 && y < SIZE;
+  }
+
+  public static int colorIndex(String color) {
+    int index = COLORS.indexOf(color);
+    if (index < 0) {
+      throw new IllegalArgumentException("Неизвестный цвет ковра: " + color);
+    }
+    return index;
+  }
+
+  public synchronized boolean isEmpty(int x, int y) {
+    return (occupied & (1L << index(x, y))) == 0;
+  }
+
+  public synchronized long getTopCarpetId(int x, int y) {
+    return topCarpetId[index(x, y)];
+  }
+
+  public synchronized long getTopOwnerId(int x, int y) {
+    return topOwnerId[index(x, y)];
+  }
+
+  public synchronized int getTopColorIndex(int x, int y) {
+    return topColor[index(x, y)];
+  }
+
+  /**
+   * Цвет верхнего ковра на клетке или null, если клетка пустая
+   */
+  public synchronized String getTopColor(int x, int y) {
+    int color = topColor[index(x, y)];
+    return color == NO_COLOR ? null : COLORS.get(color);
+  }
+
+  public synchronized int getTopPlacementTurn(int x, int y) {
+    return topTurn[index(x, y)];
+  }
+
+  /**
+   * Размер группы смежных клеток, где верхним слоем является тот же ковер, что и на (x, y); 0 для пустой клетки
+   */
+  public synchronized int getRegionSize(int x, int y) {
+    return regionSize[index(x, y)];
+  }
+
+  /**
+   * Битовая маска клеток, на которых сверху лежит ковер владельца ownerId
+   */
+  public synchronized long ownerMask(long ownerId) {
+    long mask = 0L;
+    long cells = occupied;
+    while (cells != 0) {
+      int cell = Long.numberOfTrailingZeros(cells);
+      cells &= cells - 1;
+      if (topOwnerId[cell] == ownerId) {
+        mask |= 1L << cell;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Считает количество видимых клеток каждого цвета
+   *
+   * @return массив, где индекс – индекс цвета в {@link #COLORS}, значение – число клеток с верхним слоем этого цвета
+   */
+  public synchronized int[] visibleCountsByColor() {
+    int[] counts = new int[COLORS.size()];
+    long cells = occupied;
+    while (cells != 0) {
+      int cell = Long.numberOfTrailingZeros(cells);
+      cells &= cells - 1;
+      counts[topColor[cell]]++;
+    }
+    return counts;
+  }
+
+  /**
+   * Кладет часть ковра на клетку поверх лежащего там ковра.
+   * Запись с более ранним номером хода не перекрывает уже лежащий сверху ковер
+   */
+  public synchronized void place(long carpetId, long ownerId, int colorIndex, int x, int y, int placementTurn) {
+    int cell = index(x, y);
+    boolean wasOccupied = (occupied & (1L << cell)) != 0;
+    if (wasOccupied && topTurn[cell] > placementTurn) {
+      return;
+    }
+    long coveredCarpetId = topCarpetId[cell];
+    topCarpetId[cell] = carpetId;
+    topOwnerId[cell] = ownerId;
+    topColor[cell] = (byte) colorIndex;
+    topTurn[cell] = placementTurn;
+    occupied |= 1L << cell;
+
+    // Перекрытый ковер мог распасться на части, а новый – слиться с соседними клетками
+    if (wasOccupied && coveredCarpetId != carpetId) {
+      updateRegions(coveredCarpetId);
+    }
+    updateRegions(carpetId);
+  }
+
+  /**
+   * Сравнивает верхние слои двух полей
+   *
+   * @return битовая маска клеток, у которых отличается верхний ковер
+   */
+  public synchronized long diff(BoardState other) {
+    long changed = occupied ^ other.occupied;
+    long common = occupied & other.occupied;
+    while (common != 0) {
+      int cell = Long.numberOfTrailingZeros(common);
+      common &= common - 1;
+      if (topCarpetId[cell] != other.topCarpetId[cell] || topTurn[cell] != other.topTurn[cell]) {
+        changed |= 1L << cell;
+      }
+    }
+    return changed;
+  }
+
+  private void updateRegions(long carpetId) {
+    long remaining = 0L;
+    long cells = occupied;
+    while (cells != 0) {
+      int cell = Long.numberOfTrailingZeros(cells);
+      cells &= cells - 1;
+      if (topCarpetId[cell] == carpetId) {
+        remaining |= 1L << cell;
+      }
+    }
+
+    while (remaining != 0) {
+      long region = floodFill(Long.lowestOneBit(remaining), remaining);
+      remaining &= ~region;
+      byte size = (byte) Long.bitCount(region);
+      while (region != 0) {
+        regionSize[Long.numberOfTrailingZeros(region)] = size;
+        region &= region - 1;
+      }
+    }
+  }
+
+  /**
+   * Расширяет область от seed по соседним по стороне клеткам, не выходя за пределы mask
+   */
+  static long floodFill(long seed, long mask) {
+    long region = seed & mask;
+    while (true) {
+      long grown = (region | neighbours(region)) & mask;
+      if (grown == region) {
+        return region;
+      }
+      region = grown;
+    }
+  }
+
+  static long neighbours(long cells) {
+    return (((cells << 1) & ~FIRST_COLUMN)
+        | ((cells >>> 1) & ~LAST_COLUMN)
+        | (cells << SIZE)
+        | (cells >>> SIZE)) & FULL;
+  }
+
+  private static long columnMask(int x) {
+    long mask = 0L;
+    for (int y = 0; y < SIZE; y++) {
+      mask |= 1L << index(x, y);
+    }
+    return mask;
+  }
+}
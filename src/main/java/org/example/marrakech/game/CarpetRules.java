@@ -0,0 +1,82 @@
+package org.example.marrakech.game;
+
+/**
+ * Правила размещения ковра 2x1. Нарушение правила – IllegalArgumentException с объяснением для игрока
+ */
+public final class CarpetRules {
+
+  private CarpetRules() {
+  }
+
+  /**
+   * Проверяет выбранные клетки относительно Ассама: ковер не кладется на клетку Ассама,
+   * а первая клетка примыкает к нему
+   */
+  public static void checkNextToAssam(int assamX, int assamY, int firstX, int firstY, int secondX, int secondY) {
+    if ((firstX == assamX && firstY == assamY) || (secondX == assamX && secondY == assamY)) {
+      throw new IllegalArgumentException("Нельзя размещать ковёр на клетке, где находится Ассам");
+    }
+
+    if (!isAdjacent(assamX, assamY, firstX, firstY)) {
+      throw new IllegalArgumentException("Первая клетка должна быть соседней с конечной позицией Ассама");
+    }
+  }
+
+  /**
+   * Проверяет форму ковра и правила наложения на поле
+   *
+   * @param board   поле игры до размещения
+   * @param ownerId владелец ковра
+   */
+  public static void checkPlacement(BoardState board, long ownerId, int firstX, int firstY, int secondX, int secondY) {
+    checkShape(firstX, firstY, secondX, secondY);
+    checkOverlay(board, ownerId, firstX, firstY, secondX, secondY);
+  }
+
+  /**
+   * Ковер занимает две разные соседние по стороне клетки внутри поля
+   */
+  public static void checkShape(int firstX, int firstY, int secondX, int secondY) {
+    if (firstX == secondX && firstY == secondY) {
+      throw new IllegalArgumentException("Выбраны одинаковые клетки");
+    }
+
+    if (!isAdjacent(firstX, firstY, secondX, secondY)) {
+      throw new IllegalArgumentException("Клетки должны быть соседними по стороне");
+    }
+
+    if (!BoardState.isInside(firstX, firstY) || !BoardState.isInside(secondX, secondY)) {
+      throw new IllegalArgumentException("Клетки вне поля 7x7");
+    }
+  }
+
+  /**
+   * Правила наложения на ковры, уже лежащие на поле
+   */
+  public static void checkOverlay(BoardState board, long ownerId, int firstX, int firstY, int secondX, int secondY) {
+    // Проверяем правила наложения для каждой выбранной клетки
+    checkNotOwnTop(board, ownerId, firstX, firstY);
+    checkNotOwnTop(board, ownerId, secondX, secondY);
+
+    // Проверяем, что выбранные клетки не накрыты целым ковром другого игрока
+    if (!board.isEmpty(firstX, firstY) && !board.isEmpty(secondX, secondY)
+        && board.getTopCarpetId(firstX, firstY) == board.getTopCarpetId(secondX, secondY)
+        && board.getTopPlacementTurn(firstX, firstY) == board.getTopPlacementTurn(secondX, secondY)) {
+      throw new IllegalArgumentException("Нельзя полностью перекрыть один и тот же ковёр");
+    }
+  }
+
+  public static boolean isAdjacent(int x1, int y1, int x2, int y2) {
+    return (Math.abs(x1 - x2) == 1 && y1 == y2) ||
+        (Math.abs(y1 - y2) == 1 && x1 == x2);
+  }
+
+  /**
+   * Нельзя класть ковер на клетку, где сверху лежит ковер того же игрока
+   */
+  private static void checkNotOwnTop(BoardState board, long ownerId, int x, int y) {
+    if (!board.isEmpty(x, y) && board.getTopOwnerId(x, y) == ownerId) {
+      throw new IllegalArgumentException("Нельзя размещать ковёр на клетке, где сверху лежит ваш собственный ковёр");
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package org.example.marrakech.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Последние изменения одной игры с последовательными номерами в кольцевом буфере фиксированного размера.
+ * Первое изменение получает номер 1, при переполнении старые изменения вытесняются новыми.
+ * Номера сравнимы только внутри эпохи: история, созданная заново (после перезапуска сервера или вытеснения),
+ * получает другую эпоху и снова нумерует изменения с 1
+ */
+public final class DeltaHistory<T> {
+
+  /**
+   * Место в истории
+   *
+   * @param epoch    эпоха истории
+   * @param sequence номер последнего изменения
+   */
+  public record Position(long epoch, long sequence) {}
+
+  private final Object[] entries;
+  private final long epoch;
+  private long lastSequence;
+
+  public DeltaHistory(int capacity, long epoch) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Размер истории должен быть положительным");
+    }
+    this.entries = new Object[capacity];
+    this.epoch = epoch;
+  }
+
+  public long getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Добавляет изменение в конец истории
+   *
+   * @return номер изменения
+   */
+  public synchronized long append(T delta) {
+    lastSequence++;
+    entries[slot(lastSequence)] = delta;
+    return lastSequence;
+  }
+
+  /**
+   * Номер последнего изменения, 0 – изменений еще не было
+   */
+  public synchronized long getLastSequence() {
+    return lastSequence;
+  }
+
+  /**
+   * Эпоха и номер последнего изменения, прочитанные вместе
+   */
+  public synchronized Position position() {
+    return new Position(epoch, lastSequence);
+  }
+
+  /**
+   * Возвращает изменения с номерами больше afterSequence по порядку
+   *
+   * @param epoch         эпоха, в которой клиент получил изменение afterSequence
+   * @param afterSequence номер последнего изменения, которое есть у клиента
+   * @return изменения или null, если эпоха другая (история начата заново), часть изменений уже вытеснена
+   *     или номер больше последнего
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized List<T> since(long epoch, long afterSequence) {
+    if (epoch != this.epoch || afterSequence < 0 || afterSequence > lastSequence
+        || lastSequence - afterSequence > entries.length) {
+      return null;
+    }
+    List<T> missing = new ArrayList<>((int) (lastSequence - afterSequence));
+    for (long sequence = afterSequence + 1; sequence <= lastSequence; sequence++) {
+      missing.add((T) entries[slot(sequence)]);
+    }
+    return missing;
+  }
+
+  private int slot(long sequence) {
+    return (int) (sequence % entries.length);
+  }
+}
@@ -0,0 +1,61 @@
+package org.example.marrakech.game;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Кубик игры с гранями 1, 2, 2, 3, 3, 4. Бросок определяется зерном игры и номером хода:
+ * это n-е значение генератора SplitMix64 (того же, что у {@link java.util.SplittableRandom}) с зерном игры,
+ * вычисленное напрямую по номеру. Поэтому бросок не создает объектов, не хранит состояние между ходами
+ * и воспроизводится при проверке партии по журналу.
+ * Зная зерно, можно заранее вычислить все будущие броски, поэтому до конца игры наружу отдается
+ * только {@link #commitment(long) хеш зерна}, а само зерно – после ее завершения
+ */
+public final class Dice {
+
+  private static final int[] FACES = {1, 2, 2, 3, 3, 4};
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private Dice() {
+  }
+
+  /**
+   * Зерно для новой игры
+   */
+  public static long newSeed() {
+    return ThreadLocalRandom.current().nextLong();
+  }
+
+  /**
+   * SHA-256 зерна в hex: по нему после игры можно убедиться, что раскрытое зерно не подменено
+   */
+  public static String commitment(long seed) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(ByteBuffer.allocate(Long.BYTES).putLong(seed).array());
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 недоступен", e);
+    }
+  }
+
+  /**
+   * Бросок кубика на ходу игры
+   *
+   * @param seed       зерно игры
+   * @param moveNumber номер хода, начиная с 1
+   * @return выпавшее число
+   */
+  public static int roll(long seed, int moveNumber) {
+    long z = mix(seed + moveNumber * GOLDEN_GAMMA);
+    return FACES[(int) Long.remainderUnsigned(z, FACES.length)];
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
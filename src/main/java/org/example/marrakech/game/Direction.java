@@ -0,0 +1,56 @@
+package org.example.marrakech.game;
+
+/**
+ * Направление взгляда Ассама. Порядковый номер используется как индекс в таблице переходов
+ */
+public enum Direction {
+  UP("up", 0, -1),
+  DOWN("down", 0, 1),
+  LEFT("left", -1, 0),
+  RIGHT("right", 1, 0);
+
+  private static final Direction[] VALUES = values();
+
+  private final String name;
+  private final int dx;
+  private final int dy;
+
+  Direction(String name, int dx, int dy) {
+    this.name = name;
+    this.dx = dx;
+    this.dy = dy;
+  }
+
+  /**
+   * Строковое значение, которое хранится в games.assam_direction
+   */
+  public String getName() {
+    return name;
+  }
+
+  public int getDx() {
+    return dx;
+  }
+
+  public int getDy() {
+    return dy;
+  }
+
+  public boolean isOpposite(Direction other) {
+    return dx == -other.dx && dy == -other.dy;
+  }
+
+  public static Direction ofOrdinal(int ordinal) {
+    return VALUES[ordinal];
+  }
+
+  public static Direction fromName(String name) {
+    return switch (name) {
+      case "up" -> UP;
+      case "down" -> DOWN;
+      case "left" -> LEFT;
+      case "right" -> RIGHT;
+      default -> throw new IllegalArgumentException("Неизвестное направление: " + name);
+    };
+  }
+}
@@ -0,0 +1,65 @@
+package org.example.marrakech.game;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Событие журнала игры. По последовательности событий {@link GameReplay} восстанавливает состояние игры.
+ * Имя типа события – простое имя класса записи, оно хранится в журнале рядом с телом события
+ */
+public sealed interface GameEvent {
+
+  /**
+   * Место игрока за столом на старте игры
+   */
+  record Seat(long userId, String username, String color, int turnOrder, int coins) {}
+
+  /**
+   * Стол заполнен, первый ход у firstTurnUserId; броски кубика определяются diceSeed
+   */
+  record GameStarted(List<Seat> seats, long firstTurnUserId, long diceSeed) implements GameEvent {}
+
+  record DiceRolled(int value) implements GameEvent {}
+
+  /**
+   * Ассам закончил движение в клетке (x, y), глядя в direction
+   */
+  record AssamMoved(String requestedDirection, int x, int y, String direction) implements GameEvent {}
+
+  record PaymentMade(long fromUserId, long toUserId, int amount) implements GameEvent {}
+
+  record CarpetPlaced(long carpetId, long ownerId, String color,
+                      int firstX, int firstY, int secondX, int secondY, int placementTurn) implements GameEvent {}
+
+  /**
+   * Игрок выбыл без монет, его ковры убраны с поля
+   */
+  record PlayerEliminated(long userId) implements GameEvent {}
+
+  record TurnSwitched(long userId, int moveNumber) implements GameEvent {}
+
+  record GameFinished(String winnerUsername) implements GameEvent {}
+
+  Map<String, Class<? extends GameEvent>> TYPES = Map.of(
+      "GameStarted", GameStarted.class,
+      "DiceRolled", DiceRolled.class,
+      "AssamMoved", AssamMoved.class,
+      "PaymentMade", PaymentMade.class,
+      "CarpetPlaced", CarpetPlaced.class,
+      "PlayerEliminated", PlayerEliminated.class,
+      "TurnSwitched", TurnSwitched.class,
+      "GameFinished", GameFinished.class
+  );
+
+  default String type() {
+    return getClass().getSimpleName();
+  }
+
+  static Class<? extends GameEvent> typeOf(String type) {
+    Class<? extends GameEvent> eventClass = TYPES.get(type);
+    if (eventClass == null) {
+      throw new IllegalArgumentException("Неизвестный тип события журнала: " + type);
+    }
+    return eventClass;
+  }
+}
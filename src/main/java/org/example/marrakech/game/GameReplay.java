@@ -0,0 +1,183 @@
+package org.example.marrakech.game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Состояние игры, восстановленное по журналу событий. События применяются как есть, без проверки правил:
+ * их уже проверил сервер при записи.
+ * Поле хранится слоями: каждая половина ковра – отдельный слой, поэтому после выбывания игрока
+ * открывшиеся нижние слои восстанавливаются без базы. Состояние можно сохранить в компактный
+ * {@link Snapshot} и продолжить воспроизведение с него
+ */
+public final class GameReplay {
+
+  /**
+   * Половина ковра на клетке
+   */
+  public record Layer(long carpetId, long ownerId, String color, int x, int y, int placementTurn) {}
+
+  /**
+   * Состояние после события с номером eventNumber
+   */
+  public record Snapshot(long eventNumber, String status, int assamPositionX, int assamPositionY,
+                         String assamDirection, int currentMoveNumber, long currentTurnUserId, long diceSeed,
+                         int lastDiceRoll, String winnerUsername, List<GameEvent.Seat> seats,
+                         Map<Long, Integer> coins, Set<Long> eliminated, List<Layer> layers) {}
+
+  private String status = "waiting";
+  private int assamPositionX = 3;
+  private int assamPositionY = 3;
+  private String assamDirection = Direction.UP.getName();
+  private int currentMoveNumber = 1;
+  private long currentTurnUserId;
+  private long diceSeed;
+  private int lastDiceRoll;
+  private String winnerUsername;
+  private List<GameEvent.Seat> seats = List.of();
+  private final Map<Long, Integer> coins = new HashMap<>();
+  private final Set<Long> eliminated = new LinkedHashSet<>();
+  private final List<Layer> layers = new ArrayList<>();
+
+  public GameReplay() {
+  }
+
+  public static GameReplay fromSnapshot(Snapshot snapshot) {
+    GameReplay replay = new GameReplay();
+    replay.status = snapshot.status();
+    replay.assamPositionX = snapshot.assamPositionX();
+    replay.assamPositionY = snapshot.assamPositionY();
+    replay.assamDirection = snapshot.assamDirection();
+    replay.currentMoveNumber = snapshot.currentMoveNumber();
+    replay.currentTurnUserId = snapshot.currentTurnUserId();
+    replay.diceSeed = snapshot.diceSeed();
+    replay.lastDiceRoll = snapshot.lastDiceRoll();
+    replay.winnerUsername = snapshot.winnerUsername();
+    replay.seats = List.copyOf(snapshot.seats());
+    replay.coins.putAll(snapshot.coins());
+    replay.eliminated.addAll(snapshot.eliminated());
+    replay.layers.addAll(snapshot.layers());
+    return replay;
+  }
+
+  public Snapshot snapshot(long eventNumber) {
+    return new Snapshot(eventNumber, status, assamPositionX, assamPositionY, assamDirection, currentMoveNumber,
+        currentTurnUserId, diceSeed, lastDiceRoll, winnerUsername, seats, Map.copyOf(coins), Set.copyOf(eliminated),
+        List.copyOf(layers));
+  }
+
+  public void apply(GameEvent event) {
+    switch (event) {
+      case GameEvent.GameStarted started -> {
+        status = "in_progress";
+        seats = List.copyOf(started.seats());
+        started.seats().forEach(seat -> coins.put(seat.userId(), seat.coins()));
+        currentTurnUserId = started.firstTurnUserId();
+        diceSeed = started.diceSeed();
+      }
+      case GameEvent.DiceRolled rolled -> lastDiceRoll = rolled.value();
+      case GameEvent.AssamMoved moved -> {
+        assamPositionX = moved.x();
+        assamPositionY = moved.y();
+        assamDirection = moved.direction();
+      }
+      case GameEvent.PaymentMade payment -> {
+        coins.merge(payment.fromUserId(), -payment.amount(), Integer::sum);
+        coins.merge(payment.toUserId(), payment.amount(), Integer::sum);
+      }
+      case GameEvent.CarpetPlaced placed -> {
+        layers.add(new Layer(placed.carpetId(), placed.ownerId(), placed.color(),
+            placed.firstX(), placed.firstY(), placed.placementTurn()));
+        layers.add(new Layer(placed.carpetId(), placed.ownerId(), placed.color(),
+            placed.secondX(), placed.secondY(), placed.placementTurn()));
+      }
+      case GameEvent.PlayerEliminated out -> {
+        eliminated.add(out.userId());
+        coins.put(out.userId(), 0);
+        layers.removeIf(layer -> layer.ownerId() == out.userId());
+      }
+      case GameEvent.TurnSwitched switched -> {
+        currentTurnUserId = switched.userId();
+        currentMoveNumber = switched.moveNumber();
+      }
+      case GameEvent.GameFinished finished -> {
+        status = "finished";
+        winnerUsername = finished.winnerUsername();
+      }
+    }
+  }
+
+  /**
+   * Верхний слой поля, собранный из слоев в порядке размещения
+   */
+  public BoardState board() {
+    BoardState board = new BoardState();
+    for (Layer layer : layers) {
+      board.place(layer.carpetId(), layer.ownerId(), BoardState.colorIndex(layer.color()),
+          layer.x(), layer.y(), layer.placementTurn());
+    }
+    return board;
+  }
+
+  /**
+   * Журнал начинается со старта игры; журналы игр, начатых до его появления, неполны
+   */
+  public boolean isStarted() {
+    return !seats.isEmpty();
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public int getAssamPositionX() {
+    return assamPositionX;
+  }
+
+  public int getAssamPositionY() {
+    return assamPositionY;
+  }
+
+  public String getAssamDirection() {
+    return assamDirection;
+  }
+
+  public int getCurrentMoveNumber() {
+    return currentMoveNumber;
+  }
+
+  public long getCurrentTurnUserId() {
+    return currentTurnUserId;
+  }
+
+  public long getDiceSeed() {
+    return diceSeed;
+  }
+
+  public int getLastDiceRoll() {
+    return lastDiceRoll;
+  }
+
+  public String getWinnerUsername() {
+    return winnerUsername;
+  }
+
+  public List<GameEvent.Seat> getSeats() {
+    return seats;
+  }
+
+  /**
+   * Монеты игрока, 0 для неизвестного игрока
+   */
+  public int getCoins(long userId) {
+    return coins.getOrDefault(userId, 0);
+  }
+
+  public boolean isEliminated(long userId) {
+    return eliminated.contains(userId);
+  }
+}
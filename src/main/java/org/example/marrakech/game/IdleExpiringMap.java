@@ -0,0 +1,99 @@
+package org.example.marrakech.game;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Состояние игр в памяти, которое удаляется, если к игре долго не обращались.
+ * Отдельного потока нет: устаревшие записи вычищаются при обращениях, не чаще раза в четверть срока простоя.
+ * Удаленная запись при следующем обращении строится заново, поэтому хранить здесь можно только то,
+ * что восстанавливается из базы или может начаться заново
+ */
+public final class IdleExpiringMap<V> {
+
+  private static final class Entry<V> {
+    private final V value;
+    private volatile long lastAccess;
+
+    private Entry(V value, long lastAccess) {
+      this.value = value;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  private final Map<Long, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final long idleNanos;
+  private final LongSupplier nanoClock;
+  private final AtomicLong nextSweep;
+
+  public IdleExpiringMap(long idleNanos) {
+    this(idleNanos, System::nanoTime);
+  }
+
+  /**
+   * @param idleNanos время без обращений, после которого запись удаляется
+   * @param nanoClock источник времени в наносекундах
+   */
+  public IdleExpiringMap(long idleNanos, LongSupplier nanoClock) {
+    if (idleNanos <= 0) {
+      throw new IllegalArgumentException("Срок простоя должен быть положительным");
+    }
+    this.idleNanos = idleNanos;
+    this.nanoClock = nanoClock;
+    this.nextSweep = new AtomicLong(nanoClock.getAsLong() + idleNanos / 4);
+  }
+
+  /**
+   * Значение игры или null; обращение продлевает жизнь записи
+   */
+  public V get(Long gameId) {
+    long now = touch();
+    Entry<V> entry = entries.get(gameId);
+    if (entry == null) {
+      return null;
+    }
+    entry.lastAccess = now;
+    return entry.value;
+  }
+
+  /**
+   * Значение игры; если его нет, оно строится загрузчиком
+   */
+  public V computeIfAbsent(Long gameId, Function<Long, V> loader) {
+    long now = touch();
+    Entry<V> entry = entries.computeIfAbsent(gameId, id -> new Entry<>(loader.apply(id), now));
+    entry.lastAccess = now;
+    return entry.value;
+  }
+
+  public void put(Long gameId, V value) {
+    entries.put(gameId, new Entry<>(value, touch()));
+  }
+
+  public void remove(Long gameId) {
+    entries.remove(gameId);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Текущее время; если подошел срок, заодно вычищает записи, к которым долго не обращались
+   */
+  private long touch() {
+    long now = nanoClock.getAsLong();
+    long sweepAt = nextSweep.get();
+    if (now - sweepAt >= 0 && nextSweep.compareAndSet(sweepAt, now + idleNanos / 4)) {
+      entries.forEach((gameId, entry) -> {
+        if (now - entry.lastAccess > idleNanos) {
+          entries.remove(gameId, entry);
+        }
+      });
+    }
+    return now;
+  }
+}
@@ -0,0 +1,219 @@
+package org.example.marrakech.game;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Проверка партии по журналу: каждое событие заново проходит через правила игры – кубик по зерну,
+ * таблицу движения Ассама, правила размещения ковра, расчет оплаты и порядок ходов.
+ * События, которые правила делают обязательными (оплата, выбывание, конец игры), ожидаются в журнале
+ * в том же порядке, в каком их записывает сервер. Проверка не обращается к базе, поэтому спорную
+ * партию можно перепроверить на выгруженном журнале
+ */
+public final class ReplayVerifier {
+
+  /**
+   * Итог проверки
+   *
+   * @param replay     состояние после всех событий журнала
+   * @param mismatches расхождения с правилами; пусто, если партия сыграна по правилам
+   */
+  public record Result(GameReplay replay, List<String> mismatches) {
+
+    public boolean consistent() {
+      return mismatches.isEmpty();
+    }
+  }
+
+  private final GameReplay replay = new GameReplay();
+  private final List<String> mismatches = new ArrayList<>();
+  /**
+   * События, которые по правилам должны идти следующими
+   */
+  private final Deque<GameEvent> expected = new ArrayDeque<>();
+  private boolean diceRolled;
+  private long eventNumber;
+
+  private ReplayVerifier() {
+  }
+
+  public static Result verify(List<GameEvent> events) {
+    ReplayVerifier verifier = new ReplayVerifier();
+    if (!events.isEmpty() && !(events.getFirst() instanceof GameEvent.GameStarted)) {
+      // Игра начата до появления журнала: без старта нет игроков, зерна и начального состояния,
+      // и воспроизведение дало бы расхождения, которых в партии не было
+      verifier.eventNumber = 1;
+      verifier.mismatch("журнал начинается не со старта игры: " + events.getFirst().type());
+      return new Result(verifier.replay, List.copyOf(verifier.mismatches));
+    }
+    for (GameEvent event : events) {
+      verifier.check(event);
+    }
+    if (!verifier.expected.isEmpty()) {
+      verifier.mismatch("журнал закончился, ожидалось " + verifier.expected.peekFirst());
+    }
+    return new Result(verifier.replay, List.copyOf(verifier.mismatches));
+  }
+
+  private void check(GameEvent event) {
+    eventNumber++;
+    if ("finished".equals(replay.getStatus())) {
+      mismatch("событие после конца игры: " + event.type());
+    }
+
+    GameEvent required = expected.pollFirst();
+    if (required != null) {
+      if (!required.equals(event)) {
+        mismatch("ожидалось " + required + ", в журнале " + describe(event));
+        expected.clear();
+      }
+      replay.apply(event);
+      return;
+    }
+
+    switch (event) {
+      case GameEvent.GameStarted started -> {
+        if (eventNumber != 1) {
+          mismatch("повторный старт игры");
+        }
+      }
+      case GameEvent.DiceRolled rolled -> checkDice(rolled);
+      case GameEvent.AssamMoved moved -> checkMove(moved);
+      case GameEvent.CarpetPlaced placed -> checkCarpet(placed);
+      case GameEvent.TurnSwitched switched -> checkTurn(switched);
+      case GameEvent.GameFinished finished -> checkFinish(finished);
+      case GameEvent.PaymentMade payment -> mismatch("оплата без хода на чужой ковер: " + payment);
+      case GameEvent.PlayerEliminated out -> mismatch("выбывание без оплаты: " + out);
+    }
+    replay.apply(event);
+    expectAfter(event);
+  }
+
+  private void checkDice(GameEvent.DiceRolled rolled) {
+    int roll = Dice.roll(replay.getDiceSeed(), replay.getCurrentMoveNumber());
+    if (rolled.value() != roll) {
+      mismatch("на ходу " + replay.getCurrentMoveNumber() + " выпало " + rolled.value() + ", по зерну игры " + roll);
+    }
+    diceRolled = true;
+  }
+
+  private void checkMove(GameEvent.AssamMoved moved) {
+    if (!diceRolled) {
+      mismatch("ход Ассама без броска кубика");
+    }
+    diceRolled = false;
+
+    Direction current = Direction.fromName(replay.getAssamDirection());
+    Direction requested = Direction.fromName(moved.requestedDirection());
+    if (current.isOpposite(requested)) {
+      mismatch("разворот Ассама на 180 градусов");
+    }
+    int state = AssamMovementTable.move(replay.getAssamPositionX(), replay.getAssamPositionY(),
+        requested, replay.getLastDiceRoll());
+    if (AssamMovementTable.x(state) != moved.x() || AssamMovementTable.y(state) != moved.y()
+        || !AssamMovementTable.direction(state).getName().equals(moved.direction())) {
+      mismatch("Ассам должен был прийти в (" + AssamMovementTable.x(state) + ", " + AssamMovementTable.y(state)
+          + ", " + AssamMovementTable.direction(state).getName() + "), в журнале " + moved);
+    }
+  }
+
+  private void checkCarpet(GameEvent.CarpetPlaced placed) {
+    if (placed.ownerId() != replay.getCurrentTurnUserId()) {
+      mismatch("ковер положил игрок " + placed.ownerId() + " не в свой ход");
+    }
+    if (replay.isEliminated(placed.ownerId())) {
+      mismatch("ковер выбывшего игрока " + placed.ownerId());
+    }
+    if (placed.placementTurn() != replay.getCurrentMoveNumber()) {
+      mismatch("ковер с номером хода " + placed.placementTurn() + " на ходу " + replay.getCurrentMoveNumber());
+    }
+    try {
+      CarpetRules.checkNextToAssam(replay.getAssamPositionX(), replay.getAssamPositionY(),
+          placed.firstX(), placed.firstY(), placed.secondX(), placed.secondY());
+      CarpetRules.checkPlacement(replay.board(), placed.ownerId(),
+          placed.firstX(), placed.firstY(), placed.secondX(), placed.secondY());
+    } catch (IllegalArgumentException e) {
+      mismatch(e.getMessage() + ": " + placed);
+    }
+  }
+
+  private void checkTurn(GameEvent.TurnSwitched switched) {
+    List<GameEvent.Seat> seats = seatsInTurnOrder();
+    int current = 0;
+    while (current < seats.size() && seats.get(current).userId() != replay.getCurrentTurnUserId()) {
+      current++;
+    }
+    long next = seats.get((current + 1) % seats.size()).userId();
+    if (switched.userId() != next || switched.moveNumber() != replay.getCurrentMoveNumber() + 1) {
+      mismatch("ход должен был перейти к " + next + " с номером " + (replay.getCurrentMoveNumber() + 1)
+          + ", в журнале " + switched);
+    }
+  }
+
+  /**
+   * Если игроков несколько, побеждает игрок с наибольшим числом монет; при равенстве подходит любой из них
+   */
+  private void checkFinish(GameEvent.GameFinished finished) {
+    List<GameEvent.Seat> active = activeSeats();
+    int maxCoins = active.stream().mapToInt(seat -> replay.getCoins(seat.userId())).max().orElse(0);
+    boolean winnerAllowed = active.stream()
+        .anyMatch(seat -> seat.username().equals(finished.winnerUsername())
+            && replay.getCoins(seat.userId()) == maxCoins);
+    if (!winnerAllowed) {
+      mismatch("победитель " + finished.winnerUsername() + " не совпадает с правилами");
+    }
+  }
+
+  /**
+   * События, которые правила требуют после события: оплата за чужой ковер под Ассамом и выбывание
+   * игрока без монет, конец игры после передачи хода, когда остался один игрок
+   */
+  private void expectAfter(GameEvent event) {
+    if (event instanceof GameEvent.AssamMoved moved) {
+      BoardState board = replay.board();
+      long payerId = replay.getCurrentTurnUserId();
+      if (board.isEmpty(moved.x(), moved.y()) || board.getTopOwnerId(moved.x(), moved.y()) == payerId) {
+        return;
+      }
+      int payerCoins = replay.getCoins(payerId);
+      int payment = Math.min(payerCoins, board.getRegionSize(moved.x(), moved.y()));
+      if (payment > 0) {
+        expected.add(new GameEvent.PaymentMade(payerId, board.getTopOwnerId(moved.x(), moved.y()), payment));
+      }
+      if (payerCoins - payment <= 0) {
+        expected.add(new GameEvent.PlayerEliminated(payerId));
+      }
+    } else if (event instanceof GameEvent.TurnSwitched) {
+      List<GameEvent.Seat> active = activeSeats();
+      if (active.size() == 1) {
+        expected.add(new GameEvent.GameFinished(active.getFirst().username()));
+      }
+    }
+  }
+
+  private List<GameEvent.Seat> seatsInTurnOrder() {
+    return replay.getSeats().stream()
+        .sorted(Comparator.comparingInt(GameEvent.Seat::turnOrder))
+        .toList();
+  }
+
+  private List<GameEvent.Seat> activeSeats() {
+    return seatsInTurnOrder().stream()
+        .filter(seat -> !replay.isEliminated(seat.userId()))
+        .toList();
+  }
+
+  /**
+   * Старт игры описывается только типом: в нем зерно кубика, которое до конца игры не отдается наружу
+   */
+  private static String describe(GameEvent event) {
+    return event instanceof GameEvent.GameStarted ? event.type() : event.toString();
+  }
+
+  private void mismatch(String message) {
+    mismatches.add("#" + eventNumber + ": " + message);
+  }
+}
@@ -0,0 +1,244 @@
+package org.example.marrakech.game;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Очередь ожидающих игр со множеством занятых мест, без блокировок.
+ * Состояние стола – одно число: биты занятых мест, биты мест, вход в которые зафиксирован, и признак закрытого стола.
+ * Место занимается через CAS – берется наименьшее свободное, поэтому параллельные входы никогда не получают
+ * одно место, а освободившееся место достается следующему вошедшему. Заполненные столы убираются из очереди лениво
+ */
+public final class WaitingGameQueue {
+
+  /**
+   * Занятое место: игра и номер места (он же порядок хода и цвет игрока)
+   */
+  public record Seat(long gameId, int index) {}
+
+  private static final int MAX_CAPACITY = 8;
+  /**
+   * Сдвиг битов мест, вход в которые зафиксирован
+   */
+  private static final int JOINED_SHIFT = MAX_CAPACITY;
+  /**
+   * Все места вошли, игра начинается: новых мест стол не выдает
+   */
+  private static final int CLOSED = 1 << (2 * MAX_CAPACITY);
+
+  private final int capacity;
+  private final int allSeats;
+  private final ConcurrentLinkedDeque<Table> tables = new ConcurrentLinkedDeque<>();
+  private final Map<Long, Table> tablesById = new ConcurrentHashMap<>();
+
+  public WaitingGameQueue(int capacity) {
+    if (capacity < 1 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Мест за столом должно быть от 1 до " + MAX_CAPACITY);
+    }
+    this.capacity = capacity;
+    this.allSeats = (1 << capacity) - 1;
+  }
+
+  /**
+   * Добавляет ожидающую игру в конец очереди
+   *
+   * @param gameId идентификатор игры
+   * @param taken  сколько первых мест уже занято
+   */
+  public void add(long gameId, int taken) {
+    restore(gameId, (1 << taken) - 1);
+  }
+
+  /**
+   * Добавляет ожидающую игру, места которой уже заняты зафиксированными входами
+   *
+   * @param gameId   идентификатор игры
+   * @param occupied занятые места: бит i – место i
+   * @return true, если стол уже полон – он закрывается, и игру пора начинать
+   */
+  public boolean restore(long gameId, int occupied) {
+    int seats = occupied & allSeats;
+    boolean complete = seats == allSeats;
+    Table table = new Table(gameId, seats | seats << JOINED_SHIFT | (complete ? CLOSED : 0), !complete);
+    if (tablesById.putIfAbsent(gameId, table) != null) {
+      return false;
+    }
+    if (!complete) {
+      tables.addLast(table);
+    }
+    return complete;
+  }
+
+  /**
+   * Занимает наименьшее свободное место в первой игре, где оно есть
+   *
+   * @return занятое место или null, если свободных мест нет и нужно создать новую игру
+   */
+  public Seat reserve() {
+    for (Table table : tables) {
+      int index = table.reserve();
+      if (index >= 0) {
+        prune(table);
+        return new Seat(table.gameId, index);
+      }
+      prune(table);
+    }
+    return null;
+  }
+
+  /**
+   * Отмечает, что вход на место зафиксирован. Когда зафиксированы входы всех мест, стол закрывается:
+   * игру начинает ровно один вызов
+   *
+   * @return true, если этот вход заполнил стол и игру пора начинать
+   */
+  public boolean join(Seat seat) {
+    Table table = tablesById.get(seat.gameId());
+    return table != null && table.join(seat.index());
+  }
+
+  /**
+   * Освобождает место в игре (игрок вышел или транзакция входа откатилась)
+   */
+  public void release(long gameId, int index) {
+    Table table = tablesById.get(gameId);
+    if (table == null || !table.release(index)) {
+      return;
+    }
+    offer(table);
+  }
+
+  /**
+   * Снова открывает стол, игра которого не началась: пока шел старт, из нее вышел игрок
+   */
+  public void reopen(long gameId) {
+    Table table = tablesById.get(gameId);
+    if (table != null && table.reopen()) {
+      offer(table);
+    }
+  }
+
+  /**
+   * Убирает игру из очереди (игра началась или удалена)
+   */
+  public void remove(long gameId) {
+    Table table = tablesById.remove(gameId);
+    // Флаг остается поднятым: удаленный стол больше не попадет в очередь
+    if (table != null && table.queued.getAndSet(true)) {
+      tables.remove(table);
+    }
+  }
+
+  /**
+   * Сколько свободных мест во всех ожидающих играх
+   */
+  public int freeSeats() {
+    int free = 0;
+    for (Table table : tablesById.values()) {
+      free += table.freeSeats();
+    }
+    return free;
+  }
+
+  private void offer(Table table) {
+    // Стол ставит в очередь только тот, кто первым поднял флаг: два освобождения не добавят его дважды
+    if (!table.isFull() && table.queued.compareAndSet(false, true)) {
+      tables.addFirst(table);
+    }
+  }
+
+  private void prune(Table table) {
+    if (!table.isFull() || !table.queued.compareAndSet(true, false)) {
+      return;
+    }
+    tables.remove(table);
+    // Место могли освободить, пока стол убирался из очереди
+    if (tablesById.get(table.gameId) == table) {
+      offer(table);
+    }
+  }
+
+  private final class Table {
+    private final long gameId;
+    private final AtomicInteger state;
+    /**
+     * Стол стоит в очереди tables
+     */
+    private final AtomicBoolean queued;
+
+    private Table(long gameId, int state, boolean queued) {
+      this.gameId = gameId;
+      this.state = new AtomicInteger(state);
+      this.queued = new AtomicBoolean(queued);
+    }
+
+    private int reserve() {
+      while (true) {
+        int current = state.get();
+        int free = ~current & allSeats;
+        if ((current & CLOSED) != 0 || free == 0) {
+          return -1;
+        }
+        int index = Integer.numberOfTrailingZeros(free);
+        if (state.compareAndSet(current, current | 1 << index)) {
+          return index;
+        }
+      }
+    }
+
+    private boolean join(int index) {
+      while (true) {
+        int current = state.get();
+        if ((current & 1 << index) == 0 || (current & CLOSED) != 0) {
+          return false;
+        }
+        int next = current | 1 << (index + JOINED_SHIFT);
+        boolean complete = (next >>> JOINED_SHIFT & allSeats) == allSeats;
+        if (complete) {
+          next |= CLOSED;
+        }
+        if (state.compareAndSet(current, next)) {
+          return complete;
+        }
+      }
+    }
+
+    private boolean release(int index) {
+      int seat = 1 << index | 1 << (index + JOINED_SHIFT);
+      while (true) {
+        int current = state.get();
+        if ((current & seat) == 0) {
+          return false;
+        }
+        if (state.compareAndSet(current, current & ~seat)) {
+          return true;
+        }
+      }
+    }
+
+    private boolean reopen() {
+      while (true) {
+        int current = state.get();
+        if ((current & CLOSED) == 0) {
+          return false;
+        }
+        if (state.compareAndSet(current, current & ~CLOSED)) {
+          return true;
+        }
+      }
+    }
+
+    private int freeSeats() {
+      int current = state.get();
+      return (current & CLOSED) != 0 ? 0 : capacity - Integer.bitCount(current & allSeats);
+    }
+
+    private boolean isFull() {
+      int current = state.get();
+      return (current & CLOSED) != 0 || (current & allSeats) == allSeats;
+    }
+  }
+}
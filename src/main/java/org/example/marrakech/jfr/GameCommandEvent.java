@@ -0,0 +1,29 @@
+package org.example.marrakech.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR для команды игры, выполненной в ее очереди. Фазы команды ({@link TurnPhaseEvent})
+ * записываются в том же потоке и внутри интервала этого события
+ */
+@Name("org.example.marrakech.GameCommand")
+@Label("Game Command")
+@Category({"Marrakech", "Game"})
+@Description("Команда игры от постановки в работу до завершения")
+@StackTrace(false)
+public class GameCommandEvent extends Event {
+
+  @Label("Game Id")
+  long gameId;
+
+  /**
+   * Номер хода последней фазы команды, загрузившей игру; 0, если игра не загружалась
+   */
+  @Label("Move Number")
+  int moveNumber;
+}
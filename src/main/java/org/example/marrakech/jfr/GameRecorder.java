@@ -0,0 +1,136 @@
+package org.example.marrakech.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Ограниченная запись JFR с событиями игры в локальный файл. Одновременно идет не больше одной записи,
+ * длительность и размер ограничены, по истечении времени запись сама останавливается и сохраняется.
+ * Хранятся не больше {@link #MAX_RECORDINGS} последних файлов: перед новой записью старейшие удаляются
+ */
+@Component
+public class GameRecorder {
+
+  private static final Path DIRECTORY = Path.of("recordings");
+  private static final Duration MAX_DURATION = Duration.ofMinutes(10);
+  private static final long MAX_SIZE_BYTES = 256L * 1024 * 1024;
+  /**
+   * Сколько файлов записей хранится вместе с новой
+   */
+  static final int MAX_RECORDINGS = 10;
+  private static final String FILE_PREFIX = "marrakech-";
+  private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  private Recording recording;
+  private Path file;
+
+  /**
+   * Начинает запись: стандартные события JVM (профиль default) и все события игры
+   *
+   * @param duration сколько писать; не больше 10 минут
+   * @return файл, в который будет сохранена запись
+   */
+  public synchronized Path start(Duration duration) {
+    if (duration.isZero() || duration.isNegative()) {
+      throw new IllegalArgumentException("Длительность записи должна быть положительной");
+    }
+    if (recording != null && recording.getState() == RecordingState.RUNNING) {
+      throw new IllegalStateException("Запись уже идет: " + file);
+    }
+    closeFinished();
+
+    Path destination = DIRECTORY.resolve(FILE_PREFIX + LocalDateTime.now().format(FILE_TIME) + ".jfr").toAbsolutePath();
+    try {
+      Files.createDirectories(DIRECTORY);
+      deleteOldest(DIRECTORY, MAX_RECORDINGS - 1);
+      Recording next = new Recording(Configuration.getConfiguration("default"));
+      next.enable(GameCommandEvent.class).withThreshold(Duration.ZERO);
+      next.enable(TurnPhaseEvent.class).withThreshold(Duration.ZERO);
+      next.setName("marrakech");
+      next.setToDisk(true);
+      next.setMaxSize(MAX_SIZE_BYTES);
+      next.setDuration(duration.compareTo(MAX_DURATION) > 0 ? MAX_DURATION : duration);
+      next.setDestination(destination);
+      next.start();
+      recording = next;
+      file = destination;
+      return destination;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Не удалось подготовить файл записи " + destination, e);
+    } catch (ParseException e) {
+      throw new IllegalStateException("Не удалось прочитать профиль JFR default", e);
+    }
+  }
+
+  /**
+   * Останавливает запись и сохраняет ее в файл. Если время записи уже истекло, она сохранена раньше
+   *
+   * @return файл записи
+   */
+  public synchronized Path stop() {
+    if (recording == null) {
+      throw new IllegalStateException("Запись не запущена");
+    }
+    if (recording.getState() == RecordingState.RUNNING) {
+      recording.stop();
+    }
+    Path stopped = file;
+    closeFinished();
+    return stopped;
+  }
+
+  /**
+   * Файл текущей или последней записи; null, если записей не было
+   */
+  public synchronized Path currentFile() {
+    return file;
+  }
+
+  /**
+   * Идет ли запись сейчас
+   */
+  public synchronized boolean isRecording() {
+    return recording != null && recording.getState() == RecordingState.RUNNING;
+  }
+
+  /**
+   * Удаляет старейшие файлы записей, пока их не останется keep. Время записи входит в имя файла,
+   * поэтому старейшие идут первыми по имени
+   *
+   * @param directory каталог записей
+   * @param keep      сколько последних файлов оставить
+   */
+  static void deleteOldest(Path directory, int keep) throws IOException {
+    List<Path> files;
+    try (Stream<Path> listed = Files.list(directory)) {
+      files = listed
+          .filter(path -> path.getFileName().toString().startsWith(FILE_PREFIX))
+          .filter(path -> path.getFileName().toString().endsWith(".jfr"))
+          .sorted()
+          .toList();
+    }
+    for (int i = 0; i < files.size() - keep; i++) {
+      Files.deleteIfExists(files.get(i));
+    }
+  }
+
+  private void closeFinished() {
+    if (recording != null) {
+      recording.close();
+      recording = null;
+    }
+  }
+}
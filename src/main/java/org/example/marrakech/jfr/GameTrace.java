@@ -0,0 +1,94 @@
+package org.example.marrakech.jfr;
+
+import org.example.marrakech.entity.Game;
+
+import java.util.function.Supplier;
+
+/**
+ * Запись событий JFR по командам игры. Команда хранится в потоке, который ее выполняет,
+ * поэтому фазы, не знающие игры (например, запросы к базе), получают ее идентификатор и номер хода отсюда.
+ * Когда запись JFR не идет, события не фиксируются и почти ничего не стоят
+ */
+public final class GameTrace {
+
+  private static final ThreadLocal<GameCommandEvent> COMMAND = new ThreadLocal<>();
+
+  private GameTrace() {
+  }
+
+  /**
+   * Выполняет команду игры внутри события {@link GameCommandEvent}
+   *
+   * @param gameId  идентификатор игры
+   * @param command команда
+   * @return результат команды
+   */
+  public static <T> T command(long gameId, Supplier<T> command) {
+    GameCommandEvent event = new GameCommandEvent();
+    event.gameId = gameId;
+    GameCommandEvent outer = COMMAND.get();
+    COMMAND.set(event);
+    event.begin();
+    try {
+      return command.get();
+    } finally {
+      event.commit();
+      if (outer == null) {
+        COMMAND.remove();
+      } else {
+        COMMAND.set(outer);
+      }
+    }
+  }
+
+  /**
+   * Выполняется ли в этом потоке команда игры
+   */
+  public static boolean inCommand() {
+    return COMMAND.get() != null;
+  }
+
+  /**
+   * Номер хода текущей команды; 0, если команды нет или игра еще не загружалась
+   */
+  public static int currentMoveNumber() {
+    GameCommandEvent command = COMMAND.get();
+    return command == null ? 0 : command.moveNumber;
+  }
+
+  /**
+   * Начинает фазу хода для загруженной игры. Номер хода запоминается в текущей команде
+   *
+   * @return начатое событие; фаза заканчивается вызовом commit()
+   */
+  public static TurnPhaseEvent phase(String phase, Game game) {
+    GameCommandEvent command = COMMAND.get();
+    if (command != null) {
+      command.moveNumber = game.getCurrentMoveNumber();
+    }
+    return phase(phase, null, game.getId(), game.getCurrentMoveNumber());
+  }
+
+  /**
+   * Начинает фазу текущей команды игры (например, запрос к базе)
+   */
+  public static TurnPhaseEvent phase(String phase, String detail) {
+    GameCommandEvent command = COMMAND.get();
+    return command == null
+        ? phase(phase, detail, 0, 0)
+        : phase(phase, detail, command.gameId, command.moveNumber);
+  }
+
+  /**
+   * Начинает фазу, выполняемую вне потока команды (например, в потоке рассылки)
+   */
+  public static TurnPhaseEvent phase(String phase, String detail, long gameId, int moveNumber) {
+    TurnPhaseEvent event = new TurnPhaseEvent();
+    event.phase = phase;
+    event.detail = detail;
+    event.gameId = gameId;
+    event.moveNumber = moveNumber;
+    event.begin();
+    return event;
+  }
+}
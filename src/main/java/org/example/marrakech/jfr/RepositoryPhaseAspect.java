@@ -0,0 +1,28 @@
+package org.example.marrakech.jfr;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Записывает вызовы репозиториев внутри команд игры как фазу {@link TurnPhaseEvent#DB}.
+ * Запись изменений при фиксации транзакции в эту фазу не попадает
+ */
+@Aspect
+@Component
+public class RepositoryPhaseAspect {
+
+  @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+  public Object recordQuery(ProceedingJoinPoint joinPoint) throws Throwable {
+    if (!GameTrace.inCommand()) {
+      return joinPoint.proceed();
+    }
+    TurnPhaseEvent event = GameTrace.phase(TurnPhaseEvent.DB, joinPoint.getSignature().getName());
+    try {
+      return joinPoint.proceed();
+    } finally {
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package org.example.marrakech.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR для фазы обработки хода: запросы к базе, правила, сериализация и рассылка.
+ * Фазы могут быть вложенными: запросы к базе записываются и внутри фазы правил
+ */
+@Name("org.example.marrakech.TurnPhase")
+@Label("Turn Phase")
+@Category({"Marrakech", "Game"})
+@Description("Фаза обработки команды игры")
+@StackTrace(false)
+public class TurnPhaseEvent extends Event {
+
+  public static final String DB = "db";
+  public static final String MOVEMENT = "movement";
+  public static final String PAYMENT = "payment";
+  public static final String OVERLAY = "overlay";
+  public static final String SERIALIZATION = "serialization";
+  public static final String BROADCAST = "broadcast";
+
+  @Label("Phase")
+  String phase;
+
+  /**
+   * Уточнение фазы, например вызванный метод репозитория
+   */
+  @Label("Detail")
+  String detail;
+
+  @Label("Game Id")
+  long gameId;
+
+  @Label("Move Number")
+  int moveNumber;
+}
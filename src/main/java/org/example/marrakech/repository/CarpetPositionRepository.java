@@ -6,18 +6,23 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.util.Optional;
+import java.util.List;
 
 public interface CarpetPositionRepository extends JpaRepository<CarpetPosition, CarpetPositionId> {
 
-  /// Возвращает верхнюю запись на клетке
-  @Query(value = "SELECT * FROM carpet_positions cp " +
-      "WHERE cp.position_x = :positionX " +
-      "  AND cp.position_y = :positionY " +
-      "  AND cp.carpet_id IN (SELECT c.carpet_id FROM carpets c WHERE c.game_id = :gameId) " +
-      "ORDER BY cp.placement_turn DESC LIMIT 1", nativeQuery = true)
-  Optional<CarpetPosition> findTopByGameAndPositionOrderByPlacementTurnDesc(
-      @Param("gameId") Long gameId,
-      @Param("positionX") int positionX,
-      @Param("positionY") int positionY);
+  /**
+   * Возвращает верхний слой всех занятых клеток игры одним запросом (по индексу idx_carpet_positions_game_cell_turn)
+   */
+  @Query(value = "SELECT DISTINCT ON (cp.position_x, cp.position_y) " +
+      "  cp.position_x AS \"positionX\", " +
+      "  cp.position_y AS \"positionY\", " +
+      "  cp.carpet_id AS \"carpetId\", " +
+      "  c.owner_id AS \"ownerId\", " +
+      "  c.color AS \"color\", " +
+      "  cp.placement_turn AS \"placementTurn\" " +
+      "FROM carpet_positions cp " +
+      "JOIN carpets c ON c.carpet_id = cp.carpet_id " +
+      "WHERE cp.game_id = :gameId " +
+      "ORDER BY cp.position_x, cp.position_y, cp.placement_turn DESC", nativeQuery = true)
+  List<TopCarpetCell> findTopLayerByGameId(@Param("gameId") Long gameId);
 }
@@ -0,0 +1,14 @@
+package org.example.marrakech.repository;
+
+import org.example.marrakech.entity.GameJournalEntry;
+import org.example.marrakech.entity.GameJournalEntryId;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface GameJournalRepository extends JpaRepository<GameJournalEntry, GameJournalEntryId> {
+  /**
+   * События игры после снимка по порядку номеров
+   */
+  List<GameJournalEntry> findByIdGameIdAndIdEventNumberGreaterThanOrderByIdEventNumberAsc(Long gameId, long afterEventNumber);
+}
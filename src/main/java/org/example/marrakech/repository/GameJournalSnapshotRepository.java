@@ -0,0 +1,11 @@
+package org.example.marrakech.repository;
+
+import org.example.marrakech.entity.GameJournalEntryId;
+import org.example.marrakech.entity.GameJournalSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface GameJournalSnapshotRepository extends JpaRepository<GameJournalSnapshot, GameJournalEntryId> {
+  Optional<GameJournalSnapshot> findFirstByIdGameIdOrderByIdEventNumberDesc(Long gameId);
+}
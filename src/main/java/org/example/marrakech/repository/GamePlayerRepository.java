@@ -2,15 +2,32 @@ package org.example.marrakech.repository;
 
 import org.example.marrakech.entity.GamePlayer;
 import org.example.marrakech.entity.GamePlayerId;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 import java.util.Optional;
 
 public interface GamePlayerRepository extends JpaRepository<GamePlayer, GamePlayerId> {
+  /**
+   * Подсчет результатов и проверка окончания игры читают имя и статус пользователя
+   */
+  @EntityGraph(attributePaths = "user")
   List<GamePlayer> findByGameId(Long gameId);
+
   List<GamePlayer> findByUserId(Long userId);
+
+  /**
+   * Оплата: получателю нужно имя для уведомления
+   */
+  @EntityGraph(attributePaths = "user")
   Optional<GamePlayer> findByGameIdAndUserId(Long gameId, Long userId);
+
   boolean existsByGameIdAndUserId(Long gameId, Long userId);
   long countByGameId(Long gameId);
+
+  /**
+   * Смена хода, снимок и номера мест: игроки по порядку хода вместе с пользователями
+   */
+  @EntityGraph(attributePaths = "user")
   List<GamePlayer> findByGameIdOrderByTurnOrderAsc(Long gameId);
 }
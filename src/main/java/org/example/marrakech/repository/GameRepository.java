@@ -1,11 +1,35 @@
 package org.example.marrakech.repository;
 
 import org.example.marrakech.entity.Game;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface GameRepository extends JpaRepository<Game, Long> {
+
+  /**
+   * Возвращает занятые места ожидающих игр одним запросом
+   */
+  @Query("SELECT g.id AS gameId, gp.turnOrder AS turnOrder FROM Game g LEFT JOIN g.players gp " +
+      "WHERE g.status = 'waiting' ORDER BY g.id")
+  List<WaitingGameSeat> findWaitingGameSeats();
+
+  long countByStatus(String status);
+
+  /**
+   * Обработка хода: игра вместе с текущим игроком одним запросом
+   */
+  @EntityGraph(attributePaths = "currentTurn")
+  Optional<Game> findWithCurrentTurnById(Long id);
+
+  /**
+   * Старт ожидающей игры и выход из нее блокируют строку игры, чтобы не пересечься друг с другом
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<Game> findForUpdateById(Long id);
 }
@@ -0,0 +1,18 @@
+package org.example.marrakech.repository;
+
+/**
+ * Верхний слой одной клетки поля: проекция без загрузки сущностей Carpet, Game и User
+ */
+public interface TopCarpetCell {
+  Integer getPositionX();
+
+  Integer getPositionY();
+
+  Long getCarpetId();
+
+  Long getOwnerId();
+
+  String getColor();
+
+  Integer getPlacementTurn();
+}
@@ -1,9 +1,16 @@
 package org.example.marrakech.repository;
 
 import org.example.marrakech.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByUsername(String username);
+
+  /**
+   * Лобби и отключение: пользователь вместе с текущей игрой и её текущим игроком одним запросом
+   */
+  @EntityGraph(attributePaths = {"currentGame", "currentGame.currentTurn"})
+  Optional<User> findWithCurrentGameByUsername(String username);
 }
@@ -0,0 +1,10 @@
+package org.example.marrakech.repository;
+
+/**
+ * Место в ожидающей игре; номер места пуст, если в игре не осталось игроков
+ */
+public interface WaitingGameSeat {
+  Long getGameId();
+
+  Integer getTurnOrder();
+}
@@ -0,0 +1,195 @@
+package org.example.marrakech.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.marrakech.dto.JoinGameResponse;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.entity.User;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Собирает запросы на вход в игру за короткое окно и формирует из них полные столы.
+ * Каждый полный стол создается одной транзакцией через {@link GameLobbyService#startFullTable}
+ * на потоке окна. Остальные игроки садятся в ожидающие игры обычным путем на своих потоках запросов,
+ * поэтому поток окна не выстраивает в очередь входы всего лобби
+ */
+@Component
+public class BatchMatchmaker {
+
+  private static final long BATCH_WINDOW_MS = 100;
+  private static final long JOIN_TIMEOUT_MS = 10_000;
+  private static final int TABLE_SIZE = 4;
+
+  private final GameLobbyService gameLobbyService;
+  private final ConcurrentLinkedQueue<PendingJoin> pending = new ConcurrentLinkedQueue<>();
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("matchmaker-"));
+
+  private record PendingJoin(User user, CompletableFuture<Decision> result) {}
+
+  /**
+   * Решение окна по запросу: место за собранным столом либо вход обычным путем.
+   * Обычным путем садится первый запрос игрока за окно (seatSelf) и сообщает ответ через individual,
+   * остальные запросы того же игрока ждут этот ответ
+   */
+  private record Decision(JoinGameResponse seated, boolean seatSelf,
+                          CompletableFuture<JoinGameResponse> individual) {
+
+    static Decision seated(JoinGameResponse response) {
+      return new Decision(response, false, null);
+    }
+  }
+
+  public BatchMatchmaker(GameLobbyService gameLobbyService) {
+    this.gameLobbyService = gameLobbyService;
+    scheduler.scheduleWithFixedDelay(this::flush, BATCH_WINDOW_MS, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Ставит игрока в очередь на вход и ждет решения окна. Если стол из запросов окна не собрался,
+   * игрок садится в ожидающую игру на потоке вызова
+   *
+   * @param user игрок
+   * @return место игрока в игре
+   * @throws IllegalStateException если решения нет дольше {@link #JOIN_TIMEOUT_MS} мс
+   */
+  public JoinGameResponse join(User user) {
+    CompletableFuture<Decision> result = new CompletableFuture<>();
+    pending.add(new PendingJoin(user, result));
+    Decision decision = await(result);
+    if (decision.seated() != null) {
+      return decision.seated();
+    }
+    if (!decision.seatSelf()) {
+      return await(decision.individual());
+    }
+    try {
+      JoinGameResponse response = gameLobbyService.joinGame(user);
+      decision.individual().complete(response);
+      return response;
+    } catch (RuntimeException e) {
+      decision.individual().completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Разбирает запросы окна. Любая ошибка завершает ожидающие запросы окна, а не поднимается в планировщик:
+   * иначе он отменил бы следующие окна, и все последующие входы ждали бы до истечения времени
+   */
+  void flush() {
+    List<PendingJoin> batch = new ArrayList<>();
+    try {
+      PendingJoin next;
+      while ((next = pending.poll()) != null) {
+        // Запрос, который уже не дождался решения, в стол не берется
+        if (!next.result().isDone()) {
+          batch.add(next);
+        }
+      }
+      if (!batch.isEmpty()) {
+        match(batch);
+      }
+    } catch (Throwable e) {
+      batch.forEach(join -> join.result().completeExceptionally(e));
+    }
+  }
+
+  private void match(List<PendingJoin> batch) {
+    // Один и тот же игрок мог отправить несколько запросов за окно
+    Map<Long, List<PendingJoin>> joinsByUser = new LinkedHashMap<>();
+    for (PendingJoin join : batch) {
+      joinsByUser.computeIfAbsent(join.user().getId(), id -> new ArrayList<>()).add(join);
+    }
+
+    List<List<PendingJoin>> tableCandidates = new ArrayList<>();
+    for (List<PendingJoin> joins : joinsByUser.values()) {
+      if (isWaitingForGame(joins.getFirst().user())) {
+        joinIndividually(joins);
+      } else {
+        tableCandidates.add(joins);
+      }
+    }
+
+    int fullTables = tableCandidates.size() / TABLE_SIZE;
+    for (int table = 0; table < fullTables; table++) {
+      startTable(tableCandidates.subList(table * TABLE_SIZE, (table + 1) * TABLE_SIZE));
+    }
+    for (List<PendingJoin> joins : tableCandidates.subList(fullTables * TABLE_SIZE, tableCandidates.size())) {
+      joinIndividually(joins);
+    }
+  }
+
+  private void startTable(List<List<PendingJoin>> seats) {
+    List<User> users = seats.stream().map(joins -> joins.getFirst().user()).toList();
+    List<JoinGameResponse> responses;
+    try {
+      responses = gameLobbyService.startFullTable(users);
+    } catch (RuntimeException e) {
+      // Если стол создать не удалось, игроки садятся по одному
+      seats.forEach(this::joinIndividually);
+      return;
+    }
+    for (int i = 0; i < seats.size(); i++) {
+      Decision decision = Decision.seated(responses.get(i));
+      seats.get(i).forEach(join -> join.result().complete(decision));
+    }
+  }
+
+  /**
+   * Возвращает запросы игрока их потокам: первый садится сам, остальные ждут его ответа
+   */
+  private void joinIndividually(List<PendingJoin> joins) {
+    CompletableFuture<JoinGameResponse> individual = new CompletableFuture<>();
+    for (int i = 0; i < joins.size(); i++) {
+      joins.get(i).result().complete(new Decision(null, i == 0, individual));
+    }
+  }
+
+  private boolean isWaitingForGame(User user) {
+    Game currentGame = user.getCurrentGame();
+    return currentGame != null && "waiting".equalsIgnoreCase(currentGame.getStatus());
+  }
+
+  /**
+   * Ждет результат не дольше {@link #JOIN_TIMEOUT_MS} мс. По истечении времени запрос снимается:
+   * если окно еще не успело его разобрать, оно его пропустит
+   */
+  private static <T> T await(CompletableFuture<T> result) {
+    try {
+      return result.get(JOIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      if (result.completeExceptionally(e)) {
+        throw new IllegalStateException("Вход в игру не обработан за " + JOIN_TIMEOUT_MS + " мс", e);
+      }
+      // Результат пришел одновременно с истечением времени
+      return await(result);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Ожидание входа в игру прервано", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Вход в игру не удался", e.getCause());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdown();
+    flush();
+  }
+}
@@ -0,0 +1,119 @@
+package org.example.marrakech.service;
+
+import org.example.marrakech.entity.Carpet;
+import org.example.marrakech.game.BoardState;
+import org.example.marrakech.game.IdleExpiringMap;
+import org.example.marrakech.repository.CarpetPositionRepository;
+import org.example.marrakech.repository.TopCarpetCell;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+@Service
+public class BoardStateService {
+
+  /**
+   * Поле игры, к которой долго не обращались (брошенная партия), выгружается и при нужде читается из базы заново
+   */
+  static final Duration IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+  private final CarpetPositionRepository carpetPositionRepository;
+  private final IdleExpiringMap<BoardState> boards = new IdleExpiringMap<>(IDLE_TIMEOUT.toNanos());
+
+  public BoardStateService(CarpetPositionRepository carpetPositionRepository) {
+    this.carpetPositionRepository = carpetPositionRepository;
+  }
+
+  /**
+   * Возвращает состояние поля игры. При первом обращении верхний слой поля загружается из базы одним запросом
+   *
+   * @param gameId идентификатор игры
+   * @return состояние поля игры
+   */
+  public BoardState getBoard(Long gameId) {
+    return boards.computeIfAbsent(gameId, this::loadBoard);
+  }
+
+  /**
+   * Отражает в памяти размещение ковра на двух клетках.
+   * Если транзакция будет откатана, поле игры сбрасывается и при следующем обращении загружается заново
+   */
+  public void recordPlacement(Carpet carpet, int firstX, int firstY, int secondX, int secondY, int placementTurn) {
+    Long gameId = carpet.getGame().getId();
+    BoardState board = getBoard(gameId);
+    int color = BoardState.colorIndex(carpet.getColor());
+    long ownerId = carpet.getOwner().getId();
+    board.place(carpet.getCarpetId(), ownerId, color, firstX, firstY, placementTurn);
+    board.place(carpet.getCarpetId(), ownerId, color, secondX, secondY, placementTurn);
+    evictOnRollback(gameId);
+  }
+
+  /**
+   * Перечитывает поле после удаления ковра: нижние слои в памяти не хранятся,
+   * поэтому открывшиеся клетки берутся из базы одним запросом
+   *
+   * @return битовая маска клеток, у которых изменился верхний слой
+   */
+  public long recordRemoval(Long gameId) {
+    carpetPositionRepository.flush();
+    BoardState previous = getBoard(gameId);
+    BoardState reloaded = loadBoard(gameId);
+    boards.put(gameId, reloaded);
+    evictOnRollback(gameId);
+    return previous.diff(reloaded);
+  }
+
+  /**
+   * Верхний слой поля, прочитанный из базы в обход поля в памяти
+   */
+  public BoardState readBoard(Long gameId) {
+    return loadBoard(gameId);
+  }
+
+  /**
+   * Удаляет поле игры из памяти (например, после завершения игры)
+   */
+  public void evict(Long gameId) {
+    boards.remove(gameId);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onGameDeleted(GameService.GameDeleted event) {
+    evict(event.gameId());
+  }
+
+  private BoardState loadBoard(Long gameId) {
+    BoardState board = new BoardState();
+    List<TopCarpetCell> cells = carpetPositionRepository.findTopLayerByGameId(gameId);
+    for (TopCarpetCell cell : cells) {
+      board.place(
+          cell.getCarpetId(),
+          cell.getOwnerId(),
+          BoardState.colorIndex(cell.getColor()),
+          cell.getPositionX(),
+          cell.getPositionY(),
+          cell.getPlacementTurn()
+      );
+    }
+    return board;
+  }
+
+  private void evictOnRollback(Long gameId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        if (status != STATUS_COMMITTED) {
+          evict(gameId);
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,133 @@
+package org.example.marrakech.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.marrakech.jfr.GameTrace;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет команды игры строго по очереди: у каждой игры свой почтовый ящик,
+ * команды одной игры никогда не выполняются параллельно, команды разных игр
+ * выполняются параллельно на общем пуле размером с число ядер
+ */
+@Component
+public class GameCommandExecutor {
+
+  /**
+   * Сколько команд одной игры выполняется подряд, прежде чем поток отдается другим играм
+   */
+  private static final int THROUGHPUT = 16;
+
+  private static final ThreadLocal<Long> CURRENT_GAME = new ThreadLocal<>();
+
+  private final ExecutorService pool;
+  private final ConcurrentHashMap<Long, Queue<Runnable>> mailboxes = new ConcurrentHashMap<>();
+
+  public GameCommandExecutor() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  GameCommandExecutor(int threads) {
+    this.pool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("game-command-"));
+  }
+
+  /**
+   * Ставит команду в очередь игры и ждет её выполнения.
+   * Если вызов уже происходит внутри команды этой игры, команда выполняется сразу
+   *
+   * @param gameId  идентификатор игры
+   * @param command команда
+   * @return результат команды
+   */
+  public <T> T execute(Long gameId, Supplier<T> command) {
+    if (gameId == null) {
+      throw new IllegalArgumentException("Не указан идентификатор игры");
+    }
+    if (gameId.equals(CURRENT_GAME.get())) {
+      return command.get();
+    }
+
+    try {
+      return submit(gameId, command).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Ставит команду в очередь игры
+   *
+   * @return future с результатом команды
+   */
+  public <T> CompletableFuture<T> submit(Long gameId, Supplier<T> command) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Runnable task = () -> {
+      CURRENT_GAME.set(gameId);
+      try {
+        result.complete(GameTrace.command(gameId, command));
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      } finally {
+        CURRENT_GAME.remove();
+      }
+    };
+
+    // Почтовый ящик создается вместе с первой командой; тот, кто его создал, запускает обработку
+    boolean[] created = new boolean[1];
+    mailboxes.compute(gameId, (id, queue) -> {
+      if (queue == null) {
+        queue = new ArrayDeque<>();
+        created[0] = true;
+      }
+      queue.add(task);
+      return queue;
+    });
+    if (created[0]) {
+      pool.execute(() -> drain(gameId));
+    }
+    return result;
+  }
+
+  private void drain(Long gameId) {
+    for (int i = 0; i < THROUGHPUT; i++) {
+      Runnable next = poll(gameId);
+      if (next == null) {
+        return;
+      }
+      next.run();
+    }
+    pool.execute(() -> drain(gameId));
+  }
+
+  /**
+   * Берет следующую команду; пустой почтовый ящик удаляется атомарно с проверкой
+   */
+  private Runnable poll(Long gameId) {
+    Runnable[] next = new Runnable[1];
+    mailboxes.computeIfPresent(gameId, (id, queue) -> {
+      next[0] = queue.poll();
+      return next[0] == null ? null : queue;
+    });
+    return next[0];
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdown();
+  }
+}
@@ -1,15 +1,15 @@
 package org.example.marrakech.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import org.example.marrakech.dto.GameEndMessage;
-import org.example.marrakech.dto.GameStatusUpdateMessage;
 import org.example.marrakech.entity.Game;
 import org.example.marrakech.entity.GamePlayer;
+import org.example.marrakech.game.GameEvent;
 import org.example.marrakech.repository.CarpetRepository;
 import org.example.marrakech.repository.GamePlayerRepository;
 import org.example.marrakech.repository.GameRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.Comparator;
@@ -22,23 +22,33 @@ public class GameCompletionService {
   private final GameRepository gameRepository;
   private final GamePlayerRepository gamePlayerRepository;
   private final CarpetRepository carpetRepository;
-  private final SimpMessagingTemplate messagingTemplate;
+  private final GameDeltaPublisher gameDeltaPublisher;
   private final GameResultsService gameResultsService;
+  private final BoardStateService boardStateService;
+  private final GameStateWriter gameStateWriter;
+  private final GameJournal gameJournal;
 
   @Autowired
   public GameCompletionService(GameRepository gameRepository,
                                GamePlayerRepository gamePlayerRepository,
                                CarpetRepository carpetRepository,
-                               SimpMessagingTemplate messagingTemplate,
-                               GameResultsService gameResultsService) {
+                               GameDeltaPublisher gameDeltaPublisher,
+                               GameResultsService gameResultsService,
+                               BoardStateService boardStateService,
+                               GameStateWriter gameStateWriter,
+                               GameJournal gameJournal) {
     this.gameRepository = gameRepository;
     this.gamePlayerRepository = gamePlayerRepository;
     this.carpetRepository = carpetRepository;
-    this.messagingTemplate = messagingTemplate;
+    this.gameDeltaPublisher = gameDeltaPublisher;
     this.gameResultsService = gameResultsService;
+    this.boardStateService = boardStateService;
+    this.gameStateWriter = gameStateWriter;
+    this.gameJournal = gameJournal;
   }
 
   @Transactional
+  @Timed(value = "marrakech.game.completion", description = "Проверка окончания игры", histogram = true)
   public void checkGameCompletion(Game game) {
     // Получаем всех игроков игры по game_players
     List<GamePlayer> players = gamePlayerRepository.findByGameId(game.getId());
@@ -69,19 +79,20 @@ public class GameCompletionService {
   }
 
   /**
-   * Завершает игру, устанавливая её статус на "finished", сохраняет в БД,
-   * и рассылает WebSocket уведомление о завершении с итоговыми данными
+   * Завершает игру, устанавливая её статус на "finished", сохраняет в БД вместе с итоговым положением
+   * и балансами, и добавляет в дельту игры статус, победителя и итоговые очки
    */
   private void finishGame(Game game, String winnerName) {
     game.setStatus("finished");
     gameRepository.save(game);
-    GameStatusUpdateMessage finishUpdate = new GameStatusUpdateMessage(game.getId(), game.getStatus(), winnerName);
-    messagingTemplate.convertAndSend("/topic/game/" + game.getId() + "/status", finishUpdate);
-    sendGameResults(game);
-  }
-
-  private void sendGameResults(Game game) {
+    gameStateWriter.flushAfterCommit();
+    gameJournal.append(game, new GameEvent.GameFinished(winnerName));
     GameEndMessage gameResults = gameResultsService.calculateFinalScores(game);
-    messagingTemplate.convertAndSend("/topic/game/" + game.getId() + "/results", gameResults);
+    gameDeltaPublisher.update(game, delta -> {
+      delta.setStatus(game.getStatus());
+      delta.setWinnerUsername(winnerName);
+      delta.setResults(gameResults.getPlayerScores());
+    });
+    boardStateService.evict(game.getId());
   }
 }
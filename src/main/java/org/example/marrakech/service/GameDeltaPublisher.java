@@ -0,0 +1,165 @@
+package org.example.marrakech.service;
+
+import org.example.marrakech.dto.GameDelta;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.game.DeltaHistory;
+import org.example.marrakech.game.IdleExpiringMap;
+import org.example.marrakech.websocket.GameBroadcaster;
+import org.example.marrakech.websocket.GameDeltaCodec;
+import org.example.marrakech.websocket.PlayerSlots;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Собирает все изменения игры за транзакцию в один {@link GameDelta} и отправляет его
+ * одним сообщением после коммита. Изменения копятся в буфере транзакции {@link TransactionScopedBuffer}
+ * и отправляются после коммита: при откате ничего не отправляется, а в потоке
+ * транзакции остается только постановка в очередь {@link GameBroadcaster}, сериализация и рассылка
+ * идут на его потоках. Изменение вне транзакции отправляется сразу.
+ * Каждая отправленная дельта получает порядковый номер в игре и хранится в истории игры,
+ * чтобы клиент мог догнать пропущенные изменения. История, созданная заново, получает новую эпоху:
+ * номер из прежней истории с ней не совпадет, и клиент получит полный снимок
+ */
+@Component
+public class GameDeltaPublisher {
+
+  /**
+   * Сколько последних дельт хранится для каждой игры
+   */
+  static final int HISTORY_SIZE = 128;
+  /**
+   * История игры без новых дельт и запросов синхронизации выгружается; клиент такой игры получит полный снимок
+   */
+  static final Duration IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+  private final GameBroadcaster gameBroadcaster;
+  private final PlayerSlots playerSlots;
+  private final IdleExpiringMap<DeltaHistory<GameDelta>> histories = new IdleExpiringMap<>(IDLE_TIMEOUT.toNanos());
+
+  record PendingDelta(Game game, GameDelta delta) {}
+
+  /**
+   * Дельты игр, накопленные за транзакцию; после коммита уходят в очередь рассылки
+   */
+  private final TransactionScopedBuffer<Map<Long, PendingDelta>> pendingDeltas =
+      new TransactionScopedBuffer<>(LinkedHashMap::new, new TransactionScopedBuffer.Handler<>() {
+        @Override
+        public void afterCommit(Map<Long, PendingDelta> deltas) {
+          deltas.values().forEach(pending -> send(pending.game(), pending.delta()));
+        }
+      });
+
+  public GameDeltaPublisher(GameBroadcaster gameBroadcaster, PlayerSlots playerSlots) {
+    this.gameBroadcaster = gameBroadcaster;
+    this.playerSlots = playerSlots;
+  }
+
+  /**
+   * Единственный топик игры, на который подписываются клиенты
+   */
+  public static String topic(Long gameId) {
+    return "/topic/game/" + gameId + "/delta";
+  }
+
+  /**
+   * Тот же поток дельт в двоичном формате {@link GameDeltaCodec}
+   */
+  public static String binaryTopic(Long gameId) {
+    return topic(gameId) + ".bin";
+  }
+
+  /**
+   * Добавляет изменение к дельте игры текущей транзакции
+   *
+   * @param game   игра
+   * @param change заполняет поля дельты
+   */
+  public void update(Game game, Consumer<GameDelta> change) {
+    Map<Long, PendingDelta> deltas = pendingDeltas.current();
+    if (deltas == null) {
+      GameDelta delta = new GameDelta(game.getId());
+      change.accept(delta);
+      send(game, delta);
+      return;
+    }
+    PendingDelta pending = deltas.computeIfAbsent(game.getId(), id -> new PendingDelta(game, new GameDelta(id)));
+    change.accept(pending.delta());
+  }
+
+  /**
+   * Возвращает дельты игры, отправленные после указанного номера
+   *
+   * @param gameId        идентификатор игры
+   * @param epoch         эпоха, в которой клиент получил последнюю дельту
+   * @param afterSequence номер последней дельты, которая есть у клиента
+   * @return дельты по порядку или null, если их уже нет в истории и нужен полный снимок
+   */
+  public List<GameDelta> deltasSince(Long gameId, long epoch, long afterSequence) {
+    DeltaHistory<GameDelta> history = histories.get(gameId);
+    return history == null ? null : history.since(epoch, afterSequence);
+  }
+
+  /**
+   * Эпоха и номер последней отправленной дельты игры; номер 0 – дельт еще не было
+   */
+  public DeltaHistory.Position position(Long gameId) {
+    return history(gameId).position();
+  }
+
+  /**
+   * Игра удалена: ее история и номера мест больше не нужны
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onGameDeleted(GameService.GameDeleted event) {
+    histories.remove(event.gameId());
+    playerSlots.evict(event.gameId());
+  }
+
+  private void send(Game game, GameDelta delta) {
+    // Версия читается после коммита, когда Hibernate уже увеличил её
+    delta.setVersion(game.getVersion());
+
+    DeltaHistory<GameDelta> history = history(game.getId());
+    delta.setEpoch(history.getEpoch());
+    boolean finished = "finished".equalsIgnoreCase(delta.getStatus());
+    // Номера мест берутся здесь, а не в потоке рассылки: кодирование не обращается к базе
+    Map<String, Integer> slots = gameBroadcaster.hasSubscribers(binaryTopic(game.getId()))
+        ? playerSlots.slots(game.getId())
+        : null;
+    // Номер и постановка в очередь рассылки под одной блокировкой, чтобы дельты уходили в порядке номеров
+    synchronized (history) {
+      delta.setSequence(history.append(delta));
+      gameBroadcaster.broadcast(game.getId(), topic(game.getId()), delta);
+      if (slots != null) {
+        gameBroadcaster.broadcast(game.getId(), binaryTopic(game.getId()),
+            () -> GameDeltaCodec.encode(delta, username -> slots.getOrDefault(username, -1)),
+            GameDeltaCodec.MIME_TYPE);
+      }
+    }
+
+    if (finished) {
+      // Клиенты завершенной игры получают состояние через полный снимок
+      histories.remove(game.getId());
+      playerSlots.evict(game.getId());
+    }
+  }
+
+  private DeltaHistory<GameDelta> history(Long gameId) {
+    return histories.computeIfAbsent(gameId, id -> new DeltaHistory<>(HISTORY_SIZE, newEpoch()));
+  }
+
+  /**
+   * Случайная эпоха: совпасть с эпохой прежней истории игры она может лишь с ничтожной вероятностью
+   */
+  private static long newEpoch() {
+    return ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+  }
+}
@@ -0,0 +1,295 @@
+package org.example.marrakech.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.example.marrakech.dto.JournalEntryResponse;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.entity.GameJournalEntry;
+import org.example.marrakech.game.Dice;
+import org.example.marrakech.game.GameEvent;
+import org.example.marrakech.game.GameReplay;
+import org.example.marrakech.repository.GameJournalRepository;
+import org.example.marrakech.repository.GameJournalSnapshotRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Журнал событий игры: ход, бросок кубика, оплата, ковер, выбывание, смена хода, старт и конец игры.
+ * События транзакции дописываются в журнал одной пакетной вставкой перед коммитом, в той же транзакции,
+ * что и изменения строк игры, поэтому журнал и строки не расходятся.
+ * <p>
+ * Журнал ведется рядом со строками, а не вместо них: строки games и game_players по-прежнему обновляются
+ * на месте (JPA и {@link GameStateWriter}), и команды читают состояние из них. Из журнала строки
+ * не выводятся – он нужен для разбора партий, их перепроверки ({@link ReplayVerificationService})
+ * и восстановления состояния. Журналы игр, начатых до его появления, не содержат старта: такие игры
+ * по журналу не восстанавливаются и не перепроверяются.
+ * <p>
+ * Каждые {@link #SNAPSHOT_INTERVAL} событий сохраняется снимок состояния: восстановление игры
+ * читает последний снимок и события после него. Для идущих игр состояние журнала держится в памяти,
+ * чтобы снимок не требовал чтения журнала
+ */
+@Component
+public class GameJournal {
+
+  /**
+   * Через сколько событий сохраняется снимок состояния игры
+   */
+  static final int SNAPSHOT_INTERVAL = 64;
+
+  static final String INSERT_EVENT = "INSERT INTO game_journal "
+      + "(game_id, event_number, move_number, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+  static final String INSERT_SNAPSHOT =
+      "INSERT INTO game_journal_snapshots (game_id, event_number, state) VALUES (?, ?, ?)";
+
+  /**
+   * Журнал одной игры в памяти: номер последнего события и состояние после него
+   */
+  private static final class JournalState {
+    private long lastEventNumber;
+    private final GameReplay replay;
+
+    private JournalState(long lastEventNumber, GameReplay replay) {
+      this.lastEventNumber = lastEventNumber;
+      this.replay = replay;
+    }
+  }
+
+  /**
+   * Событие транзакции и номер хода игры в момент добавления
+   */
+  private record Appended(GameEvent event, int moveNumber) {}
+
+  private final GameJournalRepository journalRepository;
+  private final GameJournalSnapshotRepository snapshotRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+  private final Map<Long, JournalState> states = new ConcurrentHashMap<>();
+  private final AtomicLong batchStatements = new AtomicLong();
+  /**
+   * События игр, накопленные за транзакцию
+   */
+  private final TransactionScopedBuffer<Map<Long, List<Appended>>> pendingEvents =
+      new TransactionScopedBuffer<>(LinkedHashMap::new, new TransactionScopedBuffer.Handler<>() {
+        /**
+         * События дописываются в журнал в той же транзакции
+         */
+        @Override
+        public void beforeCommit(Map<Long, List<Appended>> events) {
+          write(events);
+        }
+
+        /**
+         * Завершенные игры больше не дописываются, их состояние не нужно держать в памяти
+         */
+        @Override
+        public void afterCommit(Map<Long, List<Appended>> events) {
+          events.forEach((gameId, gameEvents) -> {
+            if (gameEvents.stream().anyMatch(appended -> appended.event() instanceof GameEvent.GameFinished)) {
+              states.remove(gameId);
+            }
+          });
+        }
+
+        /**
+         * Состояние в памяти могло уйти вперед записанного журнала: при следующем обращении оно перечитывается
+         */
+        @Override
+        public void afterRollback(Map<Long, List<Appended>> events) {
+          events.keySet().forEach(states::remove);
+        }
+      });
+
+  public GameJournal(GameJournalRepository journalRepository,
+                     GameJournalSnapshotRepository snapshotRepository,
+                     JdbcTemplate jdbcTemplate,
+                     ObjectMapper objectMapper) {
+    this.journalRepository = journalRepository;
+    this.snapshotRepository = snapshotRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Добавляет событие игры к журналу текущей транзакции. Вне транзакции событие записывается сразу
+   *
+   * @param game  игра
+   * @param event событие
+   */
+  public void append(Game game, GameEvent event) {
+    Appended appended = new Appended(event, game.getCurrentMoveNumber());
+    Map<Long, List<Appended>> events = pendingEvents.current();
+    if (events == null) {
+      write(Map.of(game.getId(), List.of(appended)));
+      return;
+    }
+    events.computeIfAbsent(game.getId(), id -> new ArrayList<>()).add(appended);
+  }
+
+  /**
+   * Сколько пакетных INSERT выполнено: они идут через JdbcTemplate мимо статистики Hibernate
+   */
+  public long getBatchStatementCount() {
+    return batchStatements.get();
+  }
+
+  /**
+   * Восстанавливает состояние игры по последнему снимку и событиям после него
+   *
+   * @param gameId идентификатор игры
+   * @return состояние после последнего события журнала
+   * @throws IllegalStateException если журнал не содержит старта игры
+   */
+  public GameReplay reconstruct(Long gameId) {
+    return loadStarted(gameId).replay;
+  }
+
+  /**
+   * Восстановленное состояние игры в виде снимка для разбора партии; зерно кубика скрыто до конца игры
+   */
+  public JsonNode reconstructState(Long gameId) {
+    JournalState state = loadStarted(gameId);
+    ObjectNode snapshot = objectMapper.valueToTree(state.replay.snapshot(state.lastEventNumber));
+    return withPublicDiceSeed(snapshot, "finished".equals(state.replay.getStatus()));
+  }
+
+  /**
+   * События игры по порядку, без снимков
+   */
+  public List<GameEvent> events(Long gameId) {
+    return journalRepository.findByIdGameIdAndIdEventNumberGreaterThanOrderByIdEventNumberAsc(gameId, 0).stream()
+        .map(this::decode)
+        .toList();
+  }
+
+  /**
+   * Все события игры по порядку для разбора партии; зерно кубика скрыто до конца игры
+   */
+  public List<JournalEntryResponse> entries(Long gameId) {
+    List<GameJournalEntry> entries =
+        journalRepository.findByIdGameIdAndIdEventNumberGreaterThanOrderByIdEventNumberAsc(gameId, 0);
+    boolean finished = entries.stream()
+        .anyMatch(entry -> GameEvent.GameFinished.class.getSimpleName().equals(entry.getEventType()));
+    return entries.stream()
+        .map(entry -> new JournalEntryResponse(entry.getId().getEventNumber(), entry.getMoveNumber(),
+            entry.getEventType(), withPublicDiceSeed(readTree(entry.getPayload()), finished), entry.getCreatedAt()))
+        .toList();
+  }
+
+  private void write(Map<Long, List<Appended>> eventsByGame) {
+    Timestamp now = Timestamp.from(Instant.now());
+    List<Object[]> rows = new ArrayList<>();
+    List<Object[]> snapshots = new ArrayList<>();
+    eventsByGame.forEach((gameId, events) -> {
+      // Журнал новой игры начинается с ее старта, читать его из базы не нужно
+      JournalState state = events.getFirst().event() instanceof GameEvent.GameStarted
+          ? states.computeIfAbsent(gameId, id -> new JournalState(0, new GameReplay()))
+          : states.computeIfAbsent(gameId, this::load);
+      // Номера событий игры выдаются по порядку, даже если транзакции двух команд коммитятся одновременно
+      synchronized (state) {
+        for (Appended appended : events) {
+          GameEvent event = appended.event();
+          long eventNumber = ++state.lastEventNumber;
+          if (!state.replay.isStarted() && !(event instanceof GameEvent.GameStarted)) {
+            // Игра начата до появления журнала: состояние по журналу не восстановить, поэтому номер хода
+            // берется из игры, а снимки не сохраняются
+            rows.add(new Object[]{gameId, eventNumber, appended.moveNumber(), event.type(), toJson(event), now});
+            continue;
+          }
+          state.replay.apply(event);
+          rows.add(new Object[]{gameId, eventNumber, state.replay.getCurrentMoveNumber(), event.type(),
+              toJson(event), now});
+          if (eventNumber % SNAPSHOT_INTERVAL == 0) {
+            snapshots.add(new Object[]{gameId, eventNumber, toJson(state.replay.snapshot(eventNumber))});
+          }
+        }
+      }
+    });
+    batchUpdate(INSERT_EVENT, rows);
+    if (!snapshots.isEmpty()) {
+      batchUpdate(INSERT_SNAPSHOT, snapshots);
+    }
+  }
+
+  private void batchUpdate(String sql, List<Object[]> rows) {
+    batchStatements.incrementAndGet();
+    jdbcTemplate.batchUpdate(sql, rows);
+  }
+
+  private JournalState loadStarted(Long gameId) {
+    JournalState state = load(gameId);
+    if (!state.replay.isStarted()) {
+      throw new IllegalStateException("Журнал игры " + gameId + " не содержит ее старта");
+    }
+    return state;
+  }
+
+  private JournalState load(Long gameId) {
+    GameReplay.Snapshot snapshot = snapshotRepository.findFirstByIdGameIdOrderByIdEventNumberDesc(gameId)
+        .map(stored -> fromJson(stored.getState(), GameReplay.Snapshot.class))
+        .orElse(null);
+    long lastEventNumber = snapshot == null ? 0 : snapshot.eventNumber();
+    GameReplay replay = snapshot == null ? new GameReplay() : GameReplay.fromSnapshot(snapshot);
+
+    for (GameJournalEntry entry
+        : journalRepository.findByIdGameIdAndIdEventNumberGreaterThanOrderByIdEventNumberAsc(gameId, lastEventNumber)) {
+      replay.apply(decode(entry));
+      lastEventNumber = entry.getId().getEventNumber();
+    }
+    return new JournalState(lastEventNumber, replay);
+  }
+
+  /**
+   * По зерну и номеру хода вычисляются все будущие броски, поэтому до конца игры вместо зерна
+   * отдается только его хеш. После конца игры зерно раскрывается рядом с хешем, и по нему
+   * можно перепроверить выгруженный журнал
+   */
+  private static JsonNode withPublicDiceSeed(JsonNode node, boolean finished) {
+    if (node instanceof ObjectNode object && object.has("diceSeed")) {
+      long seed = object.get("diceSeed").asLong();
+      object.put("diceSeedHash", Dice.commitment(seed));
+      if (!finished) {
+        object.remove("diceSeed");
+      }
+    }
+    return node;
+  }
+
+  private GameEvent decode(GameJournalEntry entry) {
+    return fromJson(entry.getPayload(), GameEvent.typeOf(entry.getEventType()));
+  }
+
+  private String toJson(Object value) {
+    try {
+      return objectMapper.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Не удалось записать событие журнала", e);
+    }
+  }
+
+  private JsonNode readTree(String json) {
+    try {
+      return objectMapper.readTree(json);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Не удалось прочитать журнал игры", e);
+    }
+  }
+
+  private <T> T fromJson(String json, Class<T> type) {
+    try {
+      return objectMapper.readValue(json, type);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Не удалось прочитать журнал игры", e);
+    }
+  }
+}
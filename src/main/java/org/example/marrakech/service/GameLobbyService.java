@@ -1,20 +1,31 @@
 package org.example.marrakech.service;
 
-import org.example.marrakech.dto.GameStatusUpdateMessage;
+import io.micrometer.core.annotation.Timed;
+import org.example.marrakech.dto.JoinGameResponse;
 import org.example.marrakech.entity.Carpet;
 import org.example.marrakech.entity.Game;
 import org.example.marrakech.entity.GamePlayer;
 import org.example.marrakech.entity.User;
+import org.example.marrakech.game.BoardState;
+import org.example.marrakech.game.Dice;
+import org.example.marrakech.game.GameEvent;
+import org.example.marrakech.game.WaitingGameQueue;
 import org.example.marrakech.repository.CarpetRepository;
 import org.example.marrakech.repository.GamePlayerRepository;
 import org.example.marrakech.repository.GameRepository;
 import org.example.marrakech.repository.UserRepository;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.example.marrakech.repository.WaitingGameSeat;
+import org.example.marrakech.websocket.PlayerSlots;
+import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.IntConsumer;
 
 @Service
 public class GameLobbyService {
@@ -23,85 +34,259 @@ public class GameLobbyService {
   private final GamePlayerRepository gamePlayerRepository;
   private final CarpetRepository carpetRepository;
   private final UserRepository userRepository;
-  private final SimpMessagingTemplate messagingTemplate;
+  private final GameDeltaPublisher gameDeltaPublisher;
+  private final GameJournal gameJournal;
+  private final PlayerSlots playerSlots;
+  private final TransactionTemplate transactionTemplate;
 
   // Доступные цвета для игроков (и их ковров)
-  private static final List<String> AVAILABLE_COLORS = List.of("red", "blue", "green", "yellow");
+  private static final List<String> AVAILABLE_COLORS = BoardState.COLORS;
+  private static final int MAX_PLAYERS = 4;
+
+  // Ожидающие игры со свободными местами
+  private final WaitingGameQueue waitingGames = new WaitingGameQueue(MAX_PLAYERS);
+
+  /**
+   * Вход игрока: ответ и место, занятое в очереди (null, если место не занималось)
+   */
+  private record Joined(JoinGameResponse response, WaitingGameQueue.Seat seat) {}
 
   public GameLobbyService(GameRepository gameRepository,
                           GamePlayerRepository gamePlayerRepository,
                           CarpetRepository carpetRepository,
                           UserRepository userRepository,
-                          SimpMessagingTemplate messagingTemplate) {
+                          GameDeltaPublisher gameDeltaPublisher,
+                          GameJournal gameJournal,
+                          PlayerSlots playerSlots,
+                          PlatformTransactionManager transactionManager) {
     this.gameRepository = gameRepository;
     this.gamePlayerRepository = gamePlayerRepository;
     this.carpetRepository = carpetRepository;
     this.userRepository = userRepository;
-    this.messagingTemplate = messagingTemplate;
+    this.gameDeltaPublisher = gameDeltaPublisher;
+    this.gameJournal = gameJournal;
+    this.playerSlots = playerSlots;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
   }
 
-  @Transactional
-  public Game joinGame(User user) {
-    Game game = getOrCreateWaitingGame();
+  /**
+   * Восстанавливает очередь ожидающих игр из базы при старте.
+   * Игры, все места которых заняты, но которые не успели начаться до остановки, начинаются сразу
+   */
+  @PostConstruct
+  public void restoreWaitingGames() {
+    Map<Long, Integer> occupiedSeats = new LinkedHashMap<>();
+    for (WaitingGameSeat seat : gameRepository.findWaitingGameSeats()) {
+      int bit = seat.getTurnOrder() != null ? 1 << seat.getTurnOrder() : 0;
+      occupiedSeats.merge(seat.getGameId(), bit, (a, b) -> a | b);
+    }
+    occupiedSeats.forEach((gameId, seats) -> {
+      if (waitingGames.restore(gameId, seats)) {
+        startWaitingGame(gameId, 0);
+      }
+    });
+  }
+
+  /**
+   * Сажает игрока в ожидающую игру или создает новую. Номер места из очереди – это и порядок хода, и цвет игрока.
+   * Игра начинается отдельной транзакцией, когда зафиксированы входы всех мест стола: транзакция последнего
+   * занятого места не видит входов соседей, которые еще не зафиксированы. Вызывается вне транзакции
+   */
+  @Timed(value = "marrakech.lobby.join", description = "Вход игрока в ожидающую игру", histogram = true)
+  public JoinGameResponse joinGame(User user) {
+    Joined joined = transactionTemplate.execute(status -> seatPlayer(user));
+    if (joined.seat() == null || !waitingGames.join(joined.seat())) {
+      return joined.response();
+    }
+    JoinGameResponse started = startWaitingGame(joined.seat().gameId(), joined.seat().index());
+    return started != null ? started : joined.response();
+  }
+
+  private Joined seatPlayer(User user) {
+    // Если игрок уже в ожидающей игре – просто возвращаем его место в ней
+    Game currentGame = user.getCurrentGame();
+    if (currentGame != null && "waiting".equalsIgnoreCase(currentGame.getStatus())) {
+      Optional<GamePlayer> currentSeat = gamePlayerRepository.findByGameIdAndUserId(currentGame.getId(), user.getId());
+      if (currentSeat.isPresent()) {
+        return new Joined(toJoinResponse(currentGame, currentSeat.get().getTurnOrder(),
+            currentSeat.get().getPlayerColor()), null);
+      }
+    }
 
-    // Если игрок уже в игре – просто возвращаем игру
-    if (gamePlayerRepository.existsByGameIdAndUserId(game.getId(), user.getId())) {
-      return game;
+    WaitingGameQueue.Seat seat = reserveSeat();
+    Game game;
+    int seatIndex;
+    if (seat != null) {
+      game = gameRepository.findById(seat.gameId())
+          .orElseThrow(() -> new IllegalStateException("Ожидающая игра не найдена"));
+      seatIndex = seat.index();
+    } else {
+      game = createWaitingGame();
+      seatIndex = 0;
     }
 
-    String assignedColor = assignColorToNewPlayer(game);
-    addPlayerToGame(game, user, assignedColor);
+    String assignedColor = AVAILABLE_COLORS.get(seatIndex);
+    addPlayerToGame(game, user, assignedColor, seatIndex);
     user.setPlaying(true);
     user.setCurrentGame(game);
     userRepository.save(user);
 
-    if (gamePlayerRepository.countByGameId(game.getId()) == 4) {
-      startGame(game);
+    return new Joined(toJoinResponse(game, seatIndex, assignedColor), seat);
+  }
+
+  /**
+   * Игрок вышел из ожидающей игры: его место после фиксации освобождается, и следующий вошедший
+   * получает тот же порядок хода и цвет. Строка игры блокируется, поэтому выход не пересекается со стартом:
+   * из начавшейся игры так не выйти
+   */
+  @Transactional
+  public void leaveWaitingGame(Long gameId, User user) {
+    Optional<Game> waitingGame = gameRepository.findForUpdateById(gameId)
+        .filter(game -> "waiting".equalsIgnoreCase(game.getStatus()));
+    if (waitingGame.isEmpty()) {
+      return;
+    }
+    Game game = waitingGame.get();
+    gamePlayerRepository.findByGameIdAndUserId(gameId, user.getId()).ifPresent(gamePlayer -> {
+      int seatIndex = gamePlayer.getTurnOrder();
+      gamePlayerRepository.delete(gamePlayer);
+      afterCompletion(status -> {
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+          waitingGames.release(gameId, seatIndex);
+          playerSlots.vacate(gameId, user.getUsername());
+        }
+      });
+    });
+    // Первым ходит тот, кто сядет на место 0; до тех пор текущего игрока нет
+    if (game.getCurrentTurn() != null && game.getCurrentTurn().getId().equals(user.getId())) {
+      game.setCurrentTurn(null);
     }
+    // Отвязываем игру от пользователя
+    user.setCurrentGame(null);
+    userRepository.save(user);
+    gameDeltaPublisher.update(game, delta -> delta.setLeftUsername(user.getUsername()));
+  }
+
+  /**
+   * Создает сразу заполненную игру для группы игроков одной транзакцией:
+   * игра, игроки, ковры и первый ход сохраняются вместе, уведомление о старте отправляется один раз
+   *
+   * @param users игроки стола в порядке хода
+   * @return места игроков в том же порядке
+   */
+  @Transactional
+  public List<JoinGameResponse> startFullTable(List<User> users) {
+    if (users.size() != MAX_PLAYERS) {
+      throw new IllegalArgumentException("За столом должно быть " + MAX_PLAYERS + " игрока");
+    }
+
+    Game game = new Game();
+    game.setStatus("in_progress");
+    game.setAssamPositionX(3);
+    game.setAssamPositionY(3);
+    game.setAssamDirection("up");
+    game.setCurrentTurn(users.getFirst());
+    game.setCurrentMoveNumber(1);
+    game.setDiceSeed(Dice.newSeed());
+    game = gameRepository.save(game);
+
+    List<GamePlayer> players = new ArrayList<>(MAX_PLAYERS);
+    List<Carpet> carpets = new ArrayList<>(MAX_PLAYERS);
+    List<JoinGameResponse> seats = new ArrayList<>(MAX_PLAYERS);
+    for (int i = 0; i < users.size(); i++) {
+      User user = users.get(i);
+      GamePlayer gamePlayer = new GamePlayer(game, user, AVAILABLE_COLORS.get(i));
+      gamePlayer.setTurnOrder(i);
+      players.add(gamePlayer);
 
-    return game;
+      Carpet carpet = new Carpet();
+      carpet.setGame(game);
+      carpet.setOwner(user);
+      carpet.setColor(AVAILABLE_COLORS.get(i));
+      carpets.add(carpet);
+
+      user.setPlaying(true);
+      user.setCurrentGame(game);
+      seats.add(toJoinResponse(game, i, AVAILABLE_COLORS.get(i)));
+    }
+    gamePlayerRepository.saveAll(players);
+    carpetRepository.saveAll(carpets);
+    userRepository.saveAll(users);
+
+    journalStart(game, players);
+    sendStatusUpdate(game);
+    return seats;
   }
 
-  private Game getOrCreateWaitingGame() {
-    Optional<Game> optionalGame = gameRepository.findAll().stream()
-        .filter(g -> "waiting".equalsIgnoreCase(g.getStatus())
-            && gamePlayerRepository.countByGameId(g.getId()) < 4)
-        .findFirst();
+  /**
+   * Свободные места в ожидающих играх
+   */
+  public int waitingSeats() {
+    return waitingGames.freeSeats();
+  }
 
-    if (optionalGame.isPresent()) {
-      return optionalGame.get();
-    } else {
-      Game newGame = new Game();
-      newGame.setStatus("waiting");
-      newGame.setAssamPositionX(3);
-      newGame.setAssamPositionY(3);
-      newGame.setAssamDirection("up");
-      newGame.setCurrentTurn(null);
-      newGame.setCurrentMoveNumber(1);
-
-      return gameRepository.save(newGame);
+  /**
+   * Занимает место в ожидающей игре из очереди. Если транзакция входа откатится, место освобождается
+   */
+  private WaitingGameQueue.Seat reserveSeat() {
+    WaitingGameQueue.Seat seat = waitingGames.reserve();
+    if (seat != null) {
+      afterCompletion(status -> {
+        if (status != TransactionSynchronization.STATUS_COMMITTED) {
+          waitingGames.release(seat.gameId(), seat.index());
+        }
+      });
     }
+    return seat;
   }
 
-  private String assignColorToNewPlayer(Game game) {
-    List<GamePlayer> existingPlayers = gamePlayerRepository.findByGameId(game.getId());
-    Set<String> usedColors = existingPlayers.stream()
-        .map(GamePlayer::getPlayerColor)
-        .collect(Collectors.toSet());
+  /**
+   * Создает новую ожидающую игру, первое место в которой занимает текущий игрок.
+   * В очередь игра попадает только после фиксации транзакции, чтобы другие игроки не ссылались на незафиксированную строку
+   */
+  private Game createWaitingGame() {
+    Game newGame = new Game();
+    newGame.setStatus("waiting");
+    newGame.setAssamPositionX(3);
+    newGame.setAssamPositionY(3);
+    newGame.setAssamDirection("up");
+    newGame.setCurrentTurn(null);
+    newGame.setCurrentMoveNumber(1);
+    newGame.setDiceSeed(Dice.newSeed());
 
-    List<String> freeColors = AVAILABLE_COLORS.stream()
-        .filter(color -> !usedColors.contains(color))
-        .toList();
+    Game saved = gameRepository.save(newGame);
+    long gameId = saved.getId();
+    afterCompletion(status -> {
+      if (status == TransactionSynchronization.STATUS_COMMITTED) {
+        waitingGames.add(gameId, 1);
+      }
+    });
+    return saved;
+  }
 
-    return freeColors.isEmpty() ? AVAILABLE_COLORS.getFirst()
-        : freeColors.get(new Random().nextInt(freeColors.size()));
+  private void afterCompletion(IntConsumer callback) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      callback.accept(TransactionSynchronization.STATUS_COMMITTED);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        callback.accept(status);
+      }
+    });
   }
 
-  private void addPlayerToGame(Game game, User user, String assignedColor) {
-    int currentPlayerCount = gamePlayerRepository.findByGameId(game.getId()).size();
+  private void addPlayerToGame(Game game, User user, String assignedColor, int seatIndex) {
     GamePlayer gamePlayer = new GamePlayer(game, user, assignedColor);
-    gamePlayer.setTurnOrder(currentPlayerCount);
+    gamePlayer.setTurnOrder(seatIndex);
     gamePlayerRepository.save(gamePlayer);
+    long gameId = game.getId();
+    afterCompletion(status -> {
+      if (status == TransactionSynchronization.STATUS_COMMITTED) {
+        playerSlots.seat(gameId, user.getUsername(), seatIndex);
+      }
+    });
 
     Carpet carpet = new Carpet();
     carpet.setGame(game);
@@ -110,21 +295,74 @@ public class GameLobbyService {
     carpetRepository.save(carpet);
 
     // Если игрок — первый, назначаем его текущим в игре
-    if (gamePlayerRepository.countByGameId(game.getId()) == 1) {
+    if (seatIndex == 0) {
       game.setCurrentTurn(user);
       gameRepository.save(game);
     }
   }
 
-  private void startGame(Game game) {
+  /**
+   * Начинает игру, все места которой заняты зафиксированными входами. Если пока шел старт игрок вышел,
+   * стол снова открывается для входа
+   *
+   * @param seatIndex место игрока, для которого строится ответ
+   * @return место игрока в начавшейся игре или null, если игра не началась
+   */
+  private JoinGameResponse startWaitingGame(long gameId, int seatIndex) {
+    JoinGameResponse started;
+    try {
+      started = transactionTemplate.execute(status -> startIfFull(gameId, seatIndex));
+    } catch (RuntimeException e) {
+      waitingGames.reopen(gameId);
+      throw e;
+    }
+    if (started == null) {
+      waitingGames.reopen(gameId);
+    } else {
+      waitingGames.remove(gameId);
+    }
+    return started;
+  }
+
+  /**
+   * Места и первый ход берутся из зафиксированных строк под блокировкой игры: выход сюда не вклинится
+   */
+  private JoinGameResponse startIfFull(long gameId, int seatIndex) {
+    Game game = gameRepository.findForUpdateById(gameId)
+        .orElseThrow(() -> new IllegalStateException("Ожидающая игра не найдена"));
+    List<GamePlayer> players = gamePlayerRepository.findByGameIdOrderByTurnOrderAsc(gameId);
+    if (!"waiting".equalsIgnoreCase(game.getStatus()) || players.size() != MAX_PLAYERS) {
+      return null;
+    }
     game.setStatus("in_progress");
+    game.setCurrentTurn(players.getFirst().getUser());
     gameRepository.save(game);
+    journalStart(game, players);
+    sendStatusUpdate(game);
+    return toJoinResponse(game, seatIndex, AVAILABLE_COLORS.get(seatIndex));
+  }
+
+  /**
+   * Старт игры открывает ее журнал: места игроков по порядку хода и их монеты
+   */
+  private void journalStart(Game game, List<GamePlayer> players) {
+    List<GameEvent.Seat> seats = players.stream()
+        .map(player -> new GameEvent.Seat(player.getUser().getId(), player.getUser().getUsername(),
+            player.getPlayerColor(), player.getTurnOrder(), player.getCoins()))
+        .toList();
+    gameJournal.append(game, new GameEvent.GameStarted(seats, game.getCurrentTurn().getId(), game.getDiceSeed()));
+  }
+
+  private JoinGameResponse toJoinResponse(Game game, int seat, String color) {
+    String currentTurnUsername = (game.getCurrentTurn() != null) ? game.getCurrentTurn().getUsername() : "none";
+    return new JoinGameResponse(game.getId(), game.getStatus(), seat, color, currentTurnUsername);
+  }
+
+  private void sendStatusUpdate(Game game) {
     String currentTurnUsername = (game.getCurrentTurn() != null) ? game.getCurrentTurn().getUsername() : "none";
-    GameStatusUpdateMessage statusUpdate = new GameStatusUpdateMessage(
-        game.getId(),
-        game.getStatus(),
-        currentTurnUsername
-    );
-    messagingTemplate.convertAndSend("/topic/game/" + game.getId() + "/status", statusUpdate);
+    gameDeltaPublisher.update(game, delta -> {
+      delta.setStatus(game.getStatus());
+      delta.setCurrentTurnUsername(currentTurnUsername);
+    });
   }
 }
@@ -4,7 +4,7 @@ import org.example.marrakech.dto.GameEndMessage;
 import org.example.marrakech.dto.PlayerScore;
 import org.example.marrakech.entity.Game;
 import org.example.marrakech.entity.GamePlayer;
-import org.example.marrakech.repository.CarpetPositionRepository;
+import org.example.marrakech.game.BoardState;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -12,11 +12,10 @@ import java.util.*;
 @Service
 public class GameResultsService {
 
-  private final CarpetPositionRepository carpetPositionRepository;
-  private static final int BOARD_SIZE = 7;
+  private final BoardStateService boardStateService;
 
-  public GameResultsService(CarpetPositionRepository carpetPositionRepository) {
-    this.carpetPositionRepository = carpetPositionRepository;
+  public GameResultsService(BoardStateService boardStateService) {
+    this.boardStateService = boardStateService;
   }
 
   /**
@@ -43,13 +42,10 @@ public class GameResultsService {
   private Map<String, Integer> calculateVisibleTiles(Long gameId) {
     Map<String, Integer> visibleTileCounts = new HashMap<>();
 
-    for (int x = 0; x < BOARD_SIZE; x++) {
-      for (int y = 0; y < BOARD_SIZE; y++) {
-        carpetPositionRepository.findTopByGameAndPositionOrderByPlacementTurnDesc(gameId, x, y)
-            .ifPresent(cp -> {
-              String color = cp.getCarpet().getColor();
-              visibleTileCounts.put(color, visibleTileCounts.getOrDefault(color, 0) + 1);
-            });
+    int[] countsByColor = boardStateService.getBoard(gameId).visibleCountsByColor();
+    for (int color = 0; color < countsByColor.length; color++) {
+      if (countsByColor[color] > 0) {
+        visibleTileCounts.put(BoardState.COLORS.get(color), countsByColor[color]);
       }
     }
     return visibleTileCounts;
@@ -0,0 +1,372 @@
+package org.example.marrakech.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.entity.GamePlayer;
+import org.example.marrakech.entity.GamePlayerId;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Запись часто меняющегося состояния идущих игр: положения Ассама, номера хода и монет игроков.
+ * JPA эти колонки не обновляет (updatable = false), их пишет этот компонент пакетными JDBC-запросами.
+ * Изменения транзакции копятся в буфере транзакции {@link TransactionScopedBuffer} по тому же принципу,
+ * что и дельты в {@link GameDeltaPublisher}: в каждой строке остается только последнее значение.
+ * <p>
+ * Режим marrakech.persistence.durability:
+ * <ul>
+ *   <li>sync – изменения пишутся в той же транзакции перед коммитом. Запись проверяет и увеличивает
+ *   version строки так же, как это сделал бы Hibernate: если строку успела изменить другая транзакция,
+ *   бросается {@link ObjectOptimisticLockingFailureException}, и команду повторяет {@link OptimisticLockRetry};</li>
+ *   <li>write-behind – после коммита изменения остаются в памяти и сбрасываются в базу одной транзакцией
+ *   раз в flush-interval-ms, при завершении игры и при остановке сервера. Сущности, загруженные из базы
+ *   до сброса, получают несброшенные значения сразу после загрузки. При падении сервера теряются
+ *   изменения последнего интервала. Сброс пишет значения после коммита, когда конфликт уже некому
+ *   повторить, поэтому version он не проверяет и не меняет: от одновременных изменений этих колонок
+ *   защищает только почтовый ящик игры ({@link GameCommandExecutor}), через который должны проходить
+ *   все команды, меняющие положение Ассама, номер хода и монеты. Это осознанная уступка режима: запись
+ *   в обход почтового ящика не отклоняется, и повтор {@link OptimisticLockRetry} ее не ловит.</li>
+ * </ul>
+ */
+@Component
+public class GameStateWriter {
+
+  public enum Durability { SYNC, WRITE_BEHIND }
+
+  static final String UPDATE_GAME = "UPDATE games SET assam_position_x = ?, assam_position_y = ?, "
+      + "assam_direction = ?, current_move_number = ?, version = version + 1 WHERE game_id = ? AND version = ?";
+  static final String UPDATE_COINS = "UPDATE game_players SET coins = ?, version = version + 1 "
+      + "WHERE game_id = ? AND user_id = ? AND version = ?";
+  static final String FLUSH_GAME = "UPDATE games SET assam_position_x = ?, assam_position_y = ?, "
+      + "assam_direction = ?, current_move_number = ? WHERE game_id = ?";
+  static final String FLUSH_COINS = "UPDATE game_players SET coins = ? WHERE game_id = ? AND user_id = ?";
+
+  /**
+   * Состояние игры, которое пишет этот компонент
+   */
+  record GameRow(int assamPositionX, int assamPositionY, String assamDirection, int currentMoveNumber) {
+
+    static GameRow of(Game game) {
+      return new GameRow(game.getAssamPositionX(), game.getAssamPositionY(),
+          game.getAssamDirection(), game.getCurrentMoveNumber());
+    }
+
+    void applyTo(Game game) {
+      game.setAssamPositionX(assamPositionX);
+      game.setAssamPositionY(assamPositionY);
+      game.setAssamDirection(assamDirection);
+      game.setCurrentMoveNumber(currentMoveNumber);
+    }
+  }
+
+  /**
+   * Изменения одной транзакции: сами сущности, значения и version берутся из них при записи.
+   * flushRequested – после коммита сбросить в базу все накопленное
+   */
+  static final class TransactionChanges {
+    private final Map<Long, Game> games = new LinkedHashMap<>();
+    private final Map<GamePlayerId, GamePlayer> players = new LinkedHashMap<>();
+    private boolean flushRequested;
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final EntityManagerFactory entityManagerFactory;
+  private final Durability durability;
+  private final long flushIntervalMs;
+  private final Map<Long, GameRow> pendingGames = new ConcurrentHashMap<>();
+  private final Map<GamePlayerId, Integer> pendingCoins = new ConcurrentHashMap<>();
+  private final AtomicLong failedFlushes = new AtomicLong();
+  private final AtomicLong batchStatements = new AtomicLong();
+  /**
+   * Изменения текущей транзакции
+   */
+  private final TransactionScopedBuffer<TransactionChanges> changes =
+      new TransactionScopedBuffer<>(TransactionChanges::new, new TransactionScopedBuffer.Handler<>() {
+        @Override
+        public void beforeCommit(TransactionChanges current) {
+          writeBeforeCommit(current);
+        }
+
+        @Override
+        public void afterCommit(TransactionChanges current) {
+          keepAfterCommit(current);
+        }
+      });
+  private ScheduledExecutorService scheduler;
+
+  public GameStateWriter(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         EntityManagerFactory entityManagerFactory,
+                         @Value("${marrakech.persistence.durability:sync}") String durability,
+                         @Value("${marrakech.persistence.flush-interval-ms:200}") long flushIntervalMs) {
+    if (flushIntervalMs <= 0) {
+      throw new IllegalArgumentException("Интервал сброса должен быть положительным: " + flushIntervalMs);
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    // Сброс идет и после коммита, и из транзакций только для чтения: присоединяться к ним нельзя
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.entityManagerFactory = entityManagerFactory;
+    this.durability = parseDurability(durability);
+    this.flushIntervalMs = flushIntervalMs;
+  }
+
+  static Durability parseDurability(String value) {
+    try {
+      return Durability.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Неизвестный режим записи состояния игр: " + value);
+    }
+  }
+
+  @PostConstruct
+  void start() {
+    if (durability != Durability.WRITE_BEHIND) {
+      return;
+    }
+    entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry()
+        .getService(EventListenerRegistry.class)
+        .appendListeners(EventType.POST_LOAD, (PostLoadEventListener) event -> overlay(event.getEntity()));
+    scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("state-writer-"));
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  public Durability getDurability() {
+    return durability;
+  }
+
+  /**
+   * Положение Ассама или номер хода игры изменились
+   */
+  public void record(Game game) {
+    if (changes.current() instanceof TransactionChanges current) {
+      current.games.put(game.getId(), game);
+    } else if (durability == Durability.SYNC) {
+      writeVersioned(List.of(game), List.of());
+    } else {
+      pendingGames.put(game.getId(), GameRow.of(game));
+    }
+  }
+
+  /**
+   * Баланс игрока изменился
+   */
+  public void record(GamePlayer player) {
+    if (changes.current() instanceof TransactionChanges current) {
+      current.players.put(player.getId(), player);
+    } else if (durability == Durability.SYNC) {
+      writeVersioned(List.of(), List.of(player));
+    } else {
+      pendingCoins.put(player.getId(), player.getCoins());
+    }
+  }
+
+  /**
+   * Игра завершается в текущей транзакции: в режиме write-behind ее состояние
+   * попадает в базу сразу после коммита, а не по таймеру
+   */
+  public void flushAfterCommit() {
+    if (changes.current() instanceof TransactionChanges current) {
+      current.flushRequested = true;
+    } else {
+      flush();
+    }
+  }
+
+  /**
+   * Число несброшенных строк в режиме write-behind
+   */
+  public int getPendingCount() {
+    return pendingGames.size() + pendingCoins.size();
+  }
+
+  public long getFailedFlushCount() {
+    return failedFlushes.get();
+  }
+
+  /**
+   * Сколько пакетных UPDATE выполнено: они идут через JdbcTemplate мимо статистики Hibernate
+   */
+  public long getBatchStatementCount() {
+    return batchStatements.get();
+  }
+
+  /**
+   * Hibernate сбрасывает свои изменения только при коммите, уже после этого обработчика. Его UPDATE
+   * проверяет version, загруженную в начале транзакции, и не прошел бы после записи этого компонента,
+   * поэтому сначала сбрасывается контекст персистентности, и запись идет от version после этого сброса
+   */
+  private void writeBeforeCommit(TransactionChanges current) {
+    if (durability != Durability.SYNC) {
+      return;
+    }
+    if (TransactionSynchronizationManager.getResource(entityManagerFactory) instanceof EntityManagerHolder holder) {
+      holder.getEntityManager().flush();
+    }
+    writeVersioned(current.games.values(), current.players.values());
+  }
+
+  /**
+   * Транзакция закоммичена: в режиме write-behind ее изменения ждут сброса в памяти
+   */
+  private void keepAfterCommit(TransactionChanges current) {
+    if (durability != Durability.WRITE_BEHIND) {
+      return;
+    }
+    current.games.forEach((gameId, game) -> pendingGames.put(gameId, GameRow.of(game)));
+    current.players.forEach((id, player) -> pendingCoins.put(id, player.getCoins()));
+    if (current.flushRequested) {
+      flush();
+    }
+  }
+
+  /**
+   * Сбрасывает несброшенные изменения одной транзакцией. Сбросы не пересекаются, поэтому каждый
+   * следующий пишет значения не старее предыдущего. Строка удаляется из ожидающих, только если
+   * за время сброса ее не обновили
+   */
+  synchronized void flush() {
+    Map<Long, GameRow> games = Map.copyOf(pendingGames);
+    Map<GamePlayerId, Integer> coins = Map.copyOf(pendingCoins);
+    if (games.isEmpty() && coins.isEmpty()) {
+      return;
+    }
+    transactionTemplate.executeWithoutResult(status -> writeUnversioned(games, coins));
+    games.forEach(pendingGames::remove);
+    coins.forEach(pendingCoins::remove);
+  }
+
+  /**
+   * Ошибка сброса не останавливает таймер: изменения остаются в памяти до следующей попытки
+   */
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      failedFlushes.incrementAndGet();
+    }
+  }
+
+  private void overlay(Object entity) {
+    if (entity instanceof Game game) {
+      GameRow row = pendingGames.get(game.getId());
+      if (row != null) {
+        row.applyTo(game);
+      }
+    } else if (entity instanceof GamePlayer player) {
+      Integer coins = pendingCoins.get(player.getId());
+      if (coins != null) {
+        player.setCoins(coins);
+      }
+    }
+  }
+
+  /**
+   * Пишет изменения транзакции с проверкой version. Строка, которую не удалось обновить, изменена
+   * другой транзакцией после чтения: транзакция откатывается с конфликтом оптимистической блокировки
+   */
+  private void writeVersioned(Collection<Game> games, Collection<GamePlayer> players) {
+    if (!games.isEmpty()) {
+      List<Object[]> rows = new ArrayList<>(games.size());
+      games.forEach(game -> rows.add(new Object[]{game.getAssamPositionX(), game.getAssamPositionY(),
+          game.getAssamDirection(), game.getCurrentMoveNumber(), game.getId(), game.getVersion()}));
+      checkUpdated(batchUpdate(UPDATE_GAME, rows), games, Game.class, Game::getId);
+      games.forEach(game -> advanceVersion(game, game.getVersion() + 1, game::setVersion));
+    }
+    if (!players.isEmpty()) {
+      List<Object[]> rows = new ArrayList<>(players.size());
+      players.forEach(player -> rows.add(new Object[]{player.getCoins(),
+          player.getId().getGameId(), player.getId().getUserId(), player.getVersion()}));
+      checkUpdated(batchUpdate(UPDATE_COINS, rows), players, GamePlayer.class, GamePlayer::getId);
+      players.forEach(player -> advanceVersion(player, player.getVersion() + 1, player::setVersion));
+    }
+  }
+
+  /**
+   * Запись увеличила version строки в базе: сущность получает ту же version. Для управляемой сущности
+   * version меняется и в контексте персистентности, как после UPDATE самого Hibernate, – иначе он счел бы
+   * сущность измененной, а следующая запись проверяла бы устаревшую version
+   */
+  private void advanceVersion(Object entity, Long nextVersion, Consumer<Long> setVersion) {
+    if (TransactionSynchronizationManager.getResource(entityManagerFactory) instanceof EntityManagerHolder holder
+        && holder.getEntityManager().unwrap(SessionImplementor.class)
+        .getPersistenceContextInternal().getEntry(entity) instanceof EntityEntry entry
+        && entry.getLoadedState() != null) {
+      Object[] state = entry.getLoadedState().clone();
+      state[entry.getPersister().getVersionProperty()] = nextVersion;
+      entry.postUpdate(entity, state, nextVersion);
+      return;
+    }
+    setVersion.accept(nextVersion);
+  }
+
+  private static <T> void checkUpdated(int[] counts, Collection<T> entities, Class<T> type,
+                                       Function<T, Object> id) {
+    int i = 0;
+    for (T entity : entities) {
+      // Драйвер может вернуть SUCCESS_NO_INFO вместо числа строк, конфликтом считается только 0
+      if (counts[i++] == 0) {
+        throw new ObjectOptimisticLockingFailureException(type, id.apply(entity));
+      }
+    }
+  }
+
+  private void writeUnversioned(Map<Long, GameRow> games, Map<GamePlayerId, Integer> coins) {
+    if (!games.isEmpty()) {
+      List<Object[]> rows = new ArrayList<>(games.size());
+      games.forEach((gameId, row) -> rows.add(new Object[]{
+          row.assamPositionX(), row.assamPositionY(), row.assamDirection(), row.currentMoveNumber(), gameId}));
+      batchUpdate(FLUSH_GAME, rows);
+    }
+    if (!coins.isEmpty()) {
+      List<Object[]> rows = new ArrayList<>(coins.size());
+      coins.forEach((id, value) -> rows.add(new Object[]{value, id.getGameId(), id.getUserId()}));
+      batchUpdate(FLUSH_COINS, rows);
+    }
+  }
+
+  private int[] batchUpdate(String sql, List<Object[]> rows) {
+    batchStatements.incrementAndGet();
+    return jdbcTemplate.batchUpdate(sql, rows);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+    flush();
+  }
+}
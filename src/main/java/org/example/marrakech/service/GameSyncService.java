@@ -0,0 +1,101 @@
+package org.example.marrakech.service;
+
+import org.example.marrakech.dto.GameDelta;
+import org.example.marrakech.dto.GameSnapshot;
+import org.example.marrakech.dto.ResyncResponse;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.game.BoardState;
+import org.example.marrakech.game.DeltaHistory;
+import org.example.marrakech.repository.GamePlayerRepository;
+import org.example.marrakech.repository.GameRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class GameSyncService {
+
+  private final GameRepository gameRepository;
+  private final GamePlayerRepository gamePlayerRepository;
+  private final BoardStateService boardStateService;
+  private final GameDeltaPublisher gameDeltaPublisher;
+
+  public GameSyncService(GameRepository gameRepository,
+                         GamePlayerRepository gamePlayerRepository,
+                         BoardStateService boardStateService,
+                         GameDeltaPublisher gameDeltaPublisher) {
+    this.gameRepository = gameRepository;
+    this.gamePlayerRepository = gamePlayerRepository;
+    this.boardStateService = boardStateService;
+    this.gameDeltaPublisher = gameDeltaPublisher;
+  }
+
+  /**
+   * Возвращает клиенту пропущенные дельты, если они еще есть в истории игры. Читает только память,
+   * поэтому не ждет команд игры и не обращается к базе
+   *
+   * @param gameId        идентификатор игры
+   * @param epoch         эпоха последней примененной клиентом дельты
+   * @param afterSequence номер последней примененной клиентом дельты
+   * @return дельты или null, если у клиента нет состояния, эпоха сменилась или дельты вытеснены – нужен снимок
+   */
+  public ResyncResponse missingDeltas(Long gameId, Long epoch, Long afterSequence) {
+    if (epoch == null || afterSequence == null) {
+      return null;
+    }
+    List<GameDelta> missing = gameDeltaPublisher.deltasSince(gameId, epoch, afterSequence);
+    return missing == null ? null : new ResyncResponse(gameId, epoch, missing, null);
+  }
+
+  /**
+   * Полный снимок состояния игры
+   */
+  @Transactional(readOnly = true)
+  public ResyncResponse snapshot(Long gameId) {
+    GameSnapshot snapshot = readSnapshot(gameId);
+    return new ResyncResponse(gameId, snapshot.getEpoch(), null, snapshot);
+  }
+
+  private GameSnapshot readSnapshot(Long gameId) {
+    // Номер берется до чтения состояния: дельта, пришедшая между ними, применится повторно, но не потеряется
+    DeltaHistory.Position position = gameDeltaPublisher.position(gameId);
+    Game game = gameRepository.findWithCurrentTurnById(gameId)
+        .orElseThrow(() -> new IllegalArgumentException("Игра не найдена"));
+
+    List<GameSnapshot.PlayerState> players = gamePlayerRepository.findByGameIdOrderByTurnOrderAsc(gameId).stream()
+        .map(gp -> new GameSnapshot.PlayerState(
+            gp.getTurnOrder(), gp.getUser().getUsername(), gp.getPlayerColor(), gp.getCoins(), gp.getUser().isPlaying()))
+        .toList();
+
+    // Поле завершенной игры уже выгружено из памяти и клиенту не нужно
+    String board = "finished".equalsIgnoreCase(game.getStatus()) ? null : encodeBoard(gameId);
+
+    return new GameSnapshot(
+        game.getId(),
+        position.epoch(),
+        position.sequence(),
+        game.getVersion(),
+        game.getStatus(),
+        game.getCurrentTurn() != null ? game.getCurrentTurn().getUsername() : "none",
+        game.getCurrentMoveNumber(),
+        game.getAssamPositionX(),
+        game.getAssamPositionY(),
+        game.getAssamDirection(),
+        players,
+        board
+    );
+  }
+
+  private String encodeBoard(Long gameId) {
+    BoardState board = boardStateService.getBoard(gameId);
+    StringBuilder cells = new StringBuilder(BoardState.CELLS);
+    for (int y = 0; y < BoardState.SIZE; y++) {
+      for (int x = 0; x < BoardState.SIZE; x++) {
+        String color = board.getTopColor(x, y);
+        cells.append(color == null ? '.' : color.charAt(0));
+      }
+    }
+    return cells.toString();
+  }
+}
@@ -1,12 +1,11 @@
 package org.example.marrakech.service;
 
-import org.example.marrakech.dto.TurnUpdateMessage;
 import org.example.marrakech.entity.Game;
 import org.example.marrakech.entity.GamePlayer;
 import org.example.marrakech.entity.User;
+import org.example.marrakech.game.GameEvent;
 import org.example.marrakech.repository.GamePlayerRepository;
 import org.example.marrakech.repository.GameRepository;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,14 +16,20 @@ public class GameTurnService {
 
   private final GameRepository gameRepository;
   private final GamePlayerRepository gamePlayerRepository;
-  private final SimpMessagingTemplate messagingTemplate;
+  private final GameDeltaPublisher gameDeltaPublisher;
+  private final GameStateWriter gameStateWriter;
+  private final GameJournal gameJournal;
 
   public GameTurnService(GameRepository gameRepository,
                          GamePlayerRepository gamePlayerRepository,
-                         SimpMessagingTemplate messagingTemplate) {
+                         GameDeltaPublisher gameDeltaPublisher,
+                         GameStateWriter gameStateWriter,
+                         GameJournal gameJournal) {
     this.gameRepository = gameRepository;
     this.gamePlayerRepository = gamePlayerRepository;
-    this.messagingTemplate = messagingTemplate;
+    this.gameDeltaPublisher = gameDeltaPublisher;
+    this.gameStateWriter = gameStateWriter;
+    this.gameJournal = gameJournal;
   }
 
   @Transactional
@@ -33,13 +38,15 @@ public class GameTurnService {
     List<GamePlayer> players = getOrderedGamePlayers(gameId);
     updateCurrentTurn(game, players);
     game.setCurrentMoveNumber(game.getCurrentMoveNumber() + 1);
+    gameStateWriter.record(game);
+    gameJournal.append(game, new GameEvent.TurnSwitched(game.getCurrentTurn().getId(), game.getCurrentMoveNumber()));
     notifyPlayersAboutTurn(game);
 
     return gameRepository.save(game);
   }
 
   private Game getGameById(Long gameId) {
-    return gameRepository.findById(gameId)
+    return gameRepository.findWithCurrentTurnById(gameId)
         .orElseThrow(() -> new IllegalArgumentException("Не найдена игра с id " + gameId));
   }
 
@@ -76,14 +83,11 @@ public class GameTurnService {
   }
 
   private void notifyPlayersAboutTurn(Game game) {
-    TurnUpdateMessage message = new TurnUpdateMessage();
-    message.setGameId(game.getId());
-    message.setCurrentPlayerUsername(game.getCurrentTurn().getUsername());
-    message.setMoveNumber(game.getCurrentMoveNumber());
-
-    messagingTemplate.convertAndSend(
-        "/topic/game/" + game.getId() + "/turn",
-        message
-    );
+    String currentTurnUsername = game.getCurrentTurn().getUsername();
+    int moveNumber = game.getCurrentMoveNumber();
+    gameDeltaPublisher.update(game, delta -> {
+      delta.setCurrentTurnUsername(currentTurnUsername);
+      delta.setMoveNumber(moveNumber);
+    });
   }
 }
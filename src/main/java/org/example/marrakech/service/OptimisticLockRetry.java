@@ -0,0 +1,30 @@
+package org.example.marrakech.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Повторяет транзакционную команду, если при записи обнаружено, что Game или GamePlayer
+ * уже изменены другой транзакцией. Каждая попытка выполняется в новой транзакции
+ * и заново читает состояние из базы, поэтому вызывать нужно снаружи @Transactional метода
+ */
+@Component
+public class OptimisticLockRetry {
+
+  static final int MAX_ATTEMPTS = 3;
+
+  public <T> T execute(Supplier<T> command) {
+    RuntimeException lastConflict = null;
+    for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+      try {
+        return command.get();
+      } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+        lastConflict = e;
+      }
+    }
+    throw lastConflict;
+  }
+}
@@ -0,0 +1,116 @@
+package org.example.marrakech.service;
+
+import org.example.marrakech.dto.ReplayVerificationResponse;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.entity.GamePlayer;
+import org.example.marrakech.game.BoardState;
+import org.example.marrakech.game.GameEvent;
+import org.example.marrakech.game.GameReplay;
+import org.example.marrakech.game.ReplayVerifier;
+import org.example.marrakech.repository.GamePlayerRepository;
+import org.example.marrakech.repository.GameRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Перепроверяет игру: журнал заново проходит через правила ({@link ReplayVerifier}),
+ * а итоговое состояние сравнивается с сохраненными игрой, балансами игроков и полем.
+ * Перед сравнением несброшенное состояние {@link GameStateWriter} записывается в базу. Вызывается в очереди
+ * команд игры ({@link GameCommandExecutor}): иначе ход, идущий одновременно, изменил бы строки между
+ * сбросом и чтением, и сверка нашла бы ложные расхождения
+ */
+@Service
+public class ReplayVerificationService {
+
+  private final GameJournal gameJournal;
+  private final GameRepository gameRepository;
+  private final GamePlayerRepository gamePlayerRepository;
+  private final BoardStateService boardStateService;
+  private final GameStateWriter gameStateWriter;
+
+  public ReplayVerificationService(GameJournal gameJournal,
+                                   GameRepository gameRepository,
+                                   GamePlayerRepository gamePlayerRepository,
+                                   BoardStateService boardStateService,
+                                   GameStateWriter gameStateWriter) {
+    this.gameJournal = gameJournal;
+    this.gameRepository = gameRepository;
+    this.gamePlayerRepository = gamePlayerRepository;
+    this.boardStateService = boardStateService;
+    this.gameStateWriter = gameStateWriter;
+  }
+
+  /**
+   * @param gameId идентификатор игры
+   * @return расхождения с правилами и с сохраненным состоянием
+   * @throws IllegalArgumentException если игра не найдена
+   * @throws IllegalStateException    если журнал не содержит старта игры
+   */
+  @Transactional(readOnly = true)
+  public ReplayVerificationResponse verify(Long gameId) {
+    // В режиме write-behind журнал уже записан, а положение Ассама и монеты могут еще ждать сброса:
+    // сравнение со строками до сброса дало бы ложные расхождения
+    gameStateWriter.flush();
+    Game game = gameRepository.findWithCurrentTurnById(gameId)
+        .orElseThrow(() -> new IllegalArgumentException("Игра не найдена"));
+    List<GameEvent> events = gameJournal.events(gameId);
+    if (events.isEmpty() || !(events.getFirst() instanceof GameEvent.GameStarted)) {
+      // Игра начата до появления журнала или еще не начата: сверять с базой нечего, расхождения были бы ложными
+      throw new IllegalStateException("Журнал игры " + gameId + " не содержит ее старта: "
+          + "игра не начата или начата до появления журнала и не перепроверяется");
+    }
+
+    ReplayVerifier.Result result = ReplayVerifier.verify(events);
+    List<String> mismatches = new ArrayList<>(result.mismatches());
+    compareWithStored(game, result.replay(), mismatches);
+    return new ReplayVerificationResponse(gameId, events.size(), mismatches.isEmpty(), mismatches);
+  }
+
+  private void compareWithStored(Game game, GameReplay replay, List<String> mismatches) {
+    compare("статус", replay.getStatus(), game.getStatus(), mismatches);
+    compare("клетка Ассама", replay.getAssamPositionX() + ", " + replay.getAssamPositionY(),
+        game.getAssamPositionX() + ", " + game.getAssamPositionY(), mismatches);
+    compare("направление Ассама", replay.getAssamDirection(), game.getAssamDirection(), mismatches);
+    compare("номер хода", replay.getCurrentMoveNumber(), game.getCurrentMoveNumber(), mismatches);
+    compare("ход игрока", replay.getCurrentTurnUserId(),
+        game.getCurrentTurn() == null ? null : game.getCurrentTurn().getId(), mismatches);
+    // Само зерно в ответ не попадает: до конца игры по нему можно вычислить будущие броски
+    if (replay.getDiceSeed() != game.getDiceSeed()) {
+      mismatches.add("зерно кубика в журнале не совпадает с базой");
+    }
+
+    for (GamePlayer player : gamePlayerRepository.findByGameId(game.getId())) {
+      long userId = player.getUser().getId();
+      compare("монеты игрока " + userId, replay.getCoins(userId), player.getCoins(), mismatches);
+    }
+
+    BoardState replayed = replay.board();
+    BoardState stored = boardStateService.readBoard(game.getId());
+    long changed = replayed.diff(stored);
+    while (changed != 0) {
+      int cell = Long.numberOfTrailingZeros(changed);
+      changed &= changed - 1;
+      int x = cell % BoardState.SIZE;
+      int y = cell / BoardState.SIZE;
+      mismatches.add("клетка " + x + ", " + y + ": по журналу " + topCarpet(replayed, x, y)
+          + ", в базе " + topCarpet(stored, x, y));
+    }
+  }
+
+  private static String topCarpet(BoardState board, int x, int y) {
+    if (board.isEmpty(x, y)) {
+      return "пусто";
+    }
+    return "ковер " + board.getTopCarpetId(x, y) + " с хода " + board.getTopPlacementTurn(x, y);
+  }
+
+  private static void compare(String what, Object replayed, Object stored, List<String> mismatches) {
+    if (!Objects.equals(replayed, stored)) {
+      mismatches.add(what + ": по журналу " + replayed + ", в базе " + stored);
+    }
+  }
+}
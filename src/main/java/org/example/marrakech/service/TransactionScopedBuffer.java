@@ -0,0 +1,81 @@
+package org.example.marrakech.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Данные, которые компонент накапливает за транзакцию и обрабатывает при ее завершении.
+ * Буфер создается при первом обращении в транзакции и привязывается к ней вместе с одной синхронизацией:
+ * она вызывает обработчики фаз и отвязывает буфер от потока при любом исходе транзакции
+ */
+final class TransactionScopedBuffer<T> {
+
+  /**
+   * Обработчики фаз завершения транзакции; по умолчанию ничего не делают
+   */
+  interface Handler<T> {
+
+    /**
+     * Транзакция коммитится: записи в базу попадают в нее же
+     */
+    default void beforeCommit(T buffer) {
+    }
+
+    default void afterCommit(T buffer) {
+    }
+
+    /**
+     * Транзакция откатилась или ее исход неизвестен
+     */
+    default void afterRollback(T buffer) {
+    }
+  }
+
+  private final Supplier<T> factory;
+  private final Handler<T> handler;
+
+  TransactionScopedBuffer(Supplier<T> factory, Handler<T> handler) {
+    this.factory = factory;
+    this.handler = handler;
+  }
+
+  /**
+   * Буфер текущей транзакции или null, если транзакции нет
+   */
+  T current() {
+    if (!TransactionSynchronizationManager.isActualTransactionActive()
+        || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    T current = (T) TransactionSynchronizationManager.getResource(this);
+    if (current != null) {
+      return current;
+    }
+
+    T created = factory.get();
+    TransactionSynchronizationManager.bindResource(this, created);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void beforeCommit(boolean readOnly) {
+        handler.beforeCommit(created);
+      }
+
+      @Override
+      public void afterCommit() {
+        handler.afterCommit(created);
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(TransactionScopedBuffer.this);
+        if (status != STATUS_COMMITTED) {
+          handler.afterRollback(created);
+        }
+      }
+    });
+    return created;
+  }
+}
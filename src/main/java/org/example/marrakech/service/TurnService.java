@@ -1,16 +1,18 @@
 package org.example.marrakech.service;
 
+import io.micrometer.core.annotation.Timed;
 import org.example.marrakech.dto.*;
 import org.example.marrakech.entity.Carpet;
-import org.example.marrakech.entity.CarpetPosition;
 import org.example.marrakech.entity.Game;
 import org.example.marrakech.entity.GamePlayer;
 import org.example.marrakech.entity.User;
-import org.example.marrakech.repository.CarpetPositionRepository;
+import org.example.marrakech.game.BoardState;
+import org.example.marrakech.game.GameEvent;
+import org.example.marrakech.jfr.GameTrace;
+import org.example.marrakech.jfr.TurnPhaseEvent;
 import org.example.marrakech.repository.CarpetRepository;
 import org.example.marrakech.repository.GamePlayerRepository;
 import org.example.marrakech.repository.GameRepository;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,29 +23,38 @@ public class TurnService {
 
   private final GameRepository gameRepository;
   private final CarpetRepository carpetRepository;
-  private final CarpetPositionRepository carpetPositionRepository;
+  private final BoardStateService boardStateService;
   private final GameService gameService;
   private final GameTurnService gameTurnService;
   private final GamePlayerRepository gamePlayerRepository;
-  private final SimpMessagingTemplate messagingTemplate;
+  private final GameDeltaPublisher gameDeltaPublisher;
   private final GameCompletionService gameCompletionService;
+  private final CarpetService carpetService;
+  private final GameStateWriter gameStateWriter;
+  private final GameJournal gameJournal;
 
   public TurnService(GameRepository gameRepository,
                      CarpetRepository carpetRepository,
-                     CarpetPositionRepository carpetPositionRepository,
+                     BoardStateService boardStateService,
                      GameService gameService,
                      GameTurnService gameTurnService,
                      GamePlayerRepository gamePlayerRepository,
-                     SimpMessagingTemplate messagingTemplate,
-                     GameCompletionService gameCompletionService) {
+                     GameDeltaPublisher gameDeltaPublisher,
+                     GameCompletionService gameCompletionService,
+                     CarpetService carpetService,
+                     GameStateWriter gameStateWriter,
+                     GameJournal gameJournal) {
     this.gameRepository = gameRepository;
     this.carpetRepository = carpetRepository;
-    this.carpetPositionRepository = carpetPositionRepository;
+    this.boardStateService = boardStateService;
     this.gameService = gameService;
     this.gameTurnService = gameTurnService;
     this.gamePlayerRepository = gamePlayerRepository;
-    this.messagingTemplate = messagingTemplate;
+    this.gameDeltaPublisher = gameDeltaPublisher;
     this.gameCompletionService = gameCompletionService;
+    this.carpetService = carpetService;
+    this.gameStateWriter = gameStateWriter;
+    this.gameJournal = gameJournal;
   }
 
   /**
@@ -53,50 +64,72 @@ public class TurnService {
    *
    * @param gameId идентификатор игры
    * @param movementDirection выбранное направление ("up", "down", "left", "right")
-   * @return MoveResponse, содержащий обновлённое состояние игры и число, выпавшее на кубике
+   * @return MoveResponse с новым положением Ассама и числом, выпавшим на кубике
    */
   @Transactional
+  @Timed(value = "marrakech.turn.move", description = "Ход Ассама с оплатой", histogram = true)
   public MoveResponse completeMove(Long gameId, String movementDirection) {
-    Game game = gameRepository.findById(gameId)
+    Game game = gameRepository.findWithCurrentTurnById(gameId)
         .orElseThrow(() -> new IllegalArgumentException("Игра не найдена"));
 
-    int diceRoll = moveAssamAndSave(game, movementDirection);
+    int diceRoll = moveAssamAndRecord(game, movementDirection);
 
     int finalX = game.getAssamPositionX();
     int finalY = game.getAssamPositionY();
+    gameDeltaPublisher.update(game, delta -> {
+      delta.setDiceRoll(diceRoll);
+      delta.setAssamPositionX(finalX);
+      delta.setAssamPositionY(finalY);
+      delta.setAssamDirection(game.getAssamDirection());
+    });
 
+    TurnPhaseEvent payment = GameTrace.phase(TurnPhaseEvent.PAYMENT, game);
     handleCarpetPaymentIfNeeded(game, finalX, finalY);
+    payment.commit();
 
-    return new MoveResponse(game, diceRoll);
+    return new MoveResponse(
+        game.getId(),
+        game.getStatus(),
+        diceRoll,
+        finalX,
+        finalY,
+        game.getAssamDirection(),
+        game.getCurrentTurn().getUsername(),
+        game.getCurrentMoveNumber()
+    );
   }
 
-  private int moveAssamAndSave(Game game, String movementDirection) {
-    int diceRoll = gameService.rollDice();
+  private int moveAssamAndRecord(Game game, String movementDirection) {
+    int diceRoll = gameService.rollDice(game);
+    TurnPhaseEvent movement = GameTrace.phase(TurnPhaseEvent.MOVEMENT, game);
     gameService.moveAssam(game, movementDirection, diceRoll);
-    gameRepository.save(game);
+    movement.commit();
+    gameStateWriter.record(game);
+    gameJournal.append(game, new GameEvent.DiceRolled(diceRoll));
+    gameJournal.append(game, new GameEvent.AssamMoved(movementDirection,
+        game.getAssamPositionX(), game.getAssamPositionY(), game.getAssamDirection()));
     return diceRoll;
   }
 
   private void handleCarpetPaymentIfNeeded(Game game, int x, int y) {
-    Optional<CarpetPosition> cpOpt = carpetPositionRepository
-        .findTopByGameAndPositionOrderByPlacementTurnDesc(game.getId(), x, y);
+    BoardState board = boardStateService.getBoard(game.getId());
 
-    if (cpOpt.isEmpty()) return;
+    if (board.isEmpty(x, y)) return;
 
-    Carpet topCarpet = cpOpt.get().getCarpet();
-    User carpetOwner = topCarpet.getOwner();
+    long carpetOwnerId = board.getTopOwnerId(x, y);
     User currentUser = game.getCurrentTurn();
 
-    if (carpetOwner.getId().equals(currentUser.getId())) return;
+    if (carpetOwnerId == currentUser.getId()) return;
 
-    int payment = calculatePayment(game.getId(), x, y, topCarpet);
+    // Оплата равна размеру группы смежных клеток, где верхним слоем является тот же ковер
+    int payment = board.getRegionSize(x, y);
 
     GamePlayer payer = gamePlayerRepository.findByGameIdAndUserId(game.getId(), currentUser.getId())
         .orElseThrow(() -> new IllegalStateException("Active player's record not found"));
-    GamePlayer receiver = gamePlayerRepository.findByGameIdAndUserId(game.getId(), carpetOwner.getId())
+    GamePlayer receiver = gamePlayerRepository.findByGameIdAndUserId(game.getId(), carpetOwnerId)
         .orElseThrow(() -> new IllegalStateException("Owner's record not found"));
 
-    processPayment(game, payment, currentUser, carpetOwner, payer, receiver);
+    processPayment(game, payment, currentUser, receiver.getUser(), payer, receiver);
     handlePlayerEliminationIfNeeded(game, payer, currentUser);
   }
 
@@ -106,12 +139,15 @@ public class TurnService {
 
     payer.setCoins(payer.getCoins() - actualPayment);
     receiver.setCoins(receiver.getCoins() + actualPayment);
+    gameStateWriter.record(payer);
+    gameStateWriter.record(receiver);
 
     if (actualPayment > 0) {
+      gameJournal.append(game, new GameEvent.PaymentMade(fromUser.getId(), toUser.getId(), actualPayment));
       PaymentNotificationMessage msg = new PaymentNotificationMessage(
           game.getId(), fromUser.getUsername(), toUser.getUsername(), actualPayment
       );
-      messagingTemplate.convertAndSend("/topic/game/" + game.getId() + "/payment", msg);
+      gameDeltaPublisher.update(game, delta -> delta.addPayment(msg));
     }
   }
 
@@ -119,91 +155,88 @@ public class TurnService {
     if (player.getCoins() > 0) return;
 
     player.setCoins(0);
+    gameStateWriter.record(player);
     user.setPlaying(false);
+    gameJournal.append(game, new GameEvent.PlayerEliminated(user.getId()));
 
     carpetRepository.findByGameAndOwner(game, user).ifPresent(carpet -> {
       carpetRepository.delete(carpet);
+      long changedCells = boardStateService.recordRemoval(game.getId());
 
-      FieldUpdateMessage fieldUpdate = buildFieldUpdateMessage(game, user.getId());
-      messagingTemplate.convertAndSend("/topic/game/" + game.getId() + "/fieldUpdate", fieldUpdate);
+      List<FieldUpdateMessage.CellUpdate> fieldUpdates = buildFieldUpdates(game, changedCells);
+      gameDeltaPublisher.update(game, delta -> delta.addFieldUpdates(fieldUpdates));
     });
 
-    PlayerEliminatedMessage eliminatedMsg = new PlayerEliminatedMessage(game.getId(), user.getUsername());
-    messagingTemplate.convertAndSend("/topic/game/" + game.getId() + "/elimination", eliminatedMsg);
+    gameDeltaPublisher.update(game, delta -> delta.addEliminated(user.getUsername()));
   }
 
   /**
    * Собирает обновление для игровых клеток после изменения (после выбывания игрока).
-   * Для каждой клетки проверяет верхний ковер и формирует список обновлений
+   * Для каждой клетки, у которой сменился верхний слой, передает новый верхний цвет
+   *
+   * @param changedCells битовая маска клеток с изменившимся верхним слоем
    */
-  private FieldUpdateMessage buildFieldUpdateMessage(Game game, Long eliminatedUserId) {
+  private List<FieldUpdateMessage.CellUpdate> buildFieldUpdates(Game game, long changedCells) {
+    BoardState board = boardStateService.getBoard(game.getId());
     List<FieldUpdateMessage.CellUpdate> updates = new ArrayList<>();
 
-    for (int x = 0; x < 7; x++) {
-      for (int y = 0; y < 7; y++) {
-        Optional<CarpetPosition> cpOpt = carpetPositionRepository.findTopByGameAndPositionOrderByPlacementTurnDesc(game.getId(), x, y);
-        String carpetColor = cpOpt.map(cp -> cp.getCarpet().getColor()).orElse(null);
-
-        if (cpOpt.isPresent() && cpOpt.get().getCarpet().getOwner().getId().equals(eliminatedUserId)) {
-          updates.add(new FieldUpdateMessage.CellUpdate(x, y, carpetColor));
-        }
-      }
+    while (changedCells != 0) {
+      int cell = Long.numberOfTrailingZeros(changedCells);
+      changedCells &= changedCells - 1;
+      int x = cell % BoardState.SIZE;
+      int y = cell / BoardState.SIZE;
+      updates.add(new FieldUpdateMessage.CellUpdate(x, y, board.getTopColor(x, y)));
     }
-    return new FieldUpdateMessage(game.getId(), updates);
+    return updates;
   }
 
   /**
-   * Расчитывает сумму оплаты как размер группы смежных клеток, где верхним слоем является тот же ковер.
-   * Группу определяем обходом в ширину по соседним клеткам
+   * Завершает ход одной командой: размещает ковер рядом с Ассамом, проверяет окончание игры
+   * и передает ход следующему игроку. Состояние игры загружается один раз за транзакцию.
+   * Если текущий игрок выбыл при оплате, ковер не размещается и ход просто переходит дальше
    *
-   * @param gameId идентификатор игры
-   * @param startX координата x стартовой клетки
-   * @param startY координата y стартовой клетки
-   * @param targetCarpet целевой ковер
-   * @return количество клеток в группе, покрытых верхним слоем targetCarpet
+   * @param request игра, игрок и выбранные клетки для ковра
+   * @return итог хода
    */
-  private int calculatePayment(Long gameId, int startX, int startY, Carpet targetCarpet) {
-    boolean[][] visited = new boolean[7][7];
-    Queue<int[]> queue = new LinkedList<>();
-    queue.offer(new int[]{startX, startY});
-    visited[startX][startY] = true;
-    int count = 0;
-    int[][] directions = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
-
-    while (!queue.isEmpty()) {
-      int[] current = queue.poll();
-      int cx = current[0];
-      int cy = current[1];
-
-      Optional<CarpetPosition> cp = carpetPositionRepository.findTopByGameAndPositionOrderByPlacementTurnDesc(gameId, cx, cy);
-      if (cp.isPresent()) {
-        Carpet currentCarpet = cp.get().getCarpet();
-
-        // Если верхний ковер совпадает с targetCarpet, учитываем клетку
-        if (currentCarpet.getCarpetId().equals(targetCarpet.getCarpetId())) {
-          count++;
-          for (int[] dir : directions) {
-            int nx = cx + dir[0];
-            int ny = cy + dir[1];
-            if (nx >= 0 && nx < 7 && ny >= 0 && ny < 7 && !visited[nx][ny]) {
-              visited[nx][ny] = true;
-              queue.offer(new int[]{nx, ny});
-            }
-          }
-        }
-      }
+  @Transactional
+  @Timed(value = "marrakech.turn.finish", description = "Размещение ковра и передача хода одной командой", histogram = true)
+  public TurnResultResponse finishTurn(TurnFinishRequest request) {
+    Game game = gameRepository.findWithCurrentTurnById(request.getGameId())
+        .orElseThrow(() -> new IllegalArgumentException("Игра не найдена"));
+
+    User currentUser = game.getCurrentTurn();
+    if (currentUser == null || !currentUser.getUsername().equals(request.getUsername())) {
+      throw new IllegalArgumentException("Сейчас ход другого игрока");
     }
-    return count;
+
+    if (currentUser.isPlaying()) {
+      Carpet carpet = carpetRepository.findByGameAndOwner(game, currentUser)
+          .orElseThrow(() -> new IllegalArgumentException("Ковер текущего игрока не найден"));
+      carpetService.placeCarpetAfterMove(
+          carpet,
+          game.getAssamPositionX(), game.getAssamPositionY(),
+          request.getFirstX(), request.getFirstY(),
+          request.getSecondX(), request.getSecondY()
+      );
+    }
+
+    return toTurnResult(advanceTurn(game.getId()));
   }
 
   /**
-   * Переключает текущий ход, увеличивает номер хода и отправляет обновление через WebSocket
+   * Переключает текущий ход, увеличивает номер хода и проверяет окончание игры.
+   * Новый ход попадает в дельту игры из {@link GameTurnService}
    *
    * @param gameId идентификатор игры
-   * @return обновлённое состояние игры с переключённым ходом
+   * @return итог хода: статус игры и следующий игрок
    */
   @Transactional
-  public Game switchTurn(Long gameId) {
+  @Timed(value = "marrakech.turn.switch", description = "Передача хода с проверкой окончания игры", histogram = true)
+  public TurnResultResponse switchTurn(Long gameId) {
+    return toTurnResult(advanceTurn(gameId));
+  }
+
+  private Game advanceTurn(Long gameId) {
     Game game = gameTurnService.switchToNextTurn(gameId);
     gameCompletionService.checkGameCompletion(game);
 
@@ -212,14 +245,15 @@ public class TurnService {
       throw new IllegalStateException("Current turn is null; cannot send turn update.");
     }
 
-    // Отправляем уведомление о смене хода, используя поле currentMoveNumber
-    TurnUpdateMessage turnMsg = new TurnUpdateMessage(
+    return game;
+  }
+
+  private TurnResultResponse toTurnResult(Game game) {
+    return new TurnResultResponse(
         game.getId(),
+        game.getStatus(),
         game.getCurrentTurn().getUsername(),
         game.getCurrentMoveNumber()
     );
-    messagingTemplate.convertAndSend("/topic/game/" + game.getId() + "/turn", turnMsg);
-
-    return game;
   }
 }
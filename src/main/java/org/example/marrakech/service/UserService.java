@@ -30,4 +30,11 @@ public class UserService {
   public User findByUsername(String username) {
     return userRepository.findByUsername(username).orElse(null);
   }
+
+  /**
+   * Пользователь вместе с текущей игрой: матчмейкер проверяет ее статус вне транзакции
+   */
+  public User findWithCurrentGame(String username) {
+    return userRepository.findWithCurrentGameByUsername(username).orElse(null);
+  }
 }
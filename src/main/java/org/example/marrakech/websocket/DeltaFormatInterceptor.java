@@ -0,0 +1,82 @@
+package org.example.marrakech.websocket;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Выбирает формат дельт для STOMP-сессии. Клиент, который в кадре CONNECT передал заголовок
+ * accept с {@link GameDeltaCodec#MIME_TYPE}, при подписке на /topic/game/{id}/delta
+ * подписывается на двоичный топик /topic/game/{id}/delta.bin.
+ * Двоичный формат согласуется только для сессий, открытых через {@link #BINARY_ENDPOINT}:
+ * транспорты SockJS передают кадры текстом и портят двоичные дельты
+ */
+@Component
+public class DeltaFormatInterceptor implements ChannelInterceptor {
+
+  /**
+   * Конечная точка чистого WebSocket без SockJS для клиентов с двоичным протоколом
+   */
+  public static final String BINARY_ENDPOINT = "/ws-binary";
+
+  static final String BINARY_DELTAS_ATTRIBUTE = "binaryDeltas";
+  static final String RAW_TRANSPORT_ATTRIBUTE = "rawTransport";
+
+  private static final Pattern DELTA_TOPIC = Pattern.compile("/topic/game/\\d+/delta");
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+    if (accessor == null || accessor.getCommand() == null) {
+      return message;
+    }
+
+    Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+    if (accessor.getCommand() == StompCommand.CONNECT && sessionAttributes != null
+        && Boolean.TRUE.equals(sessionAttributes.get(RAW_TRANSPORT_ATTRIBUTE))
+        && acceptsBinary(accessor.getFirstNativeHeader("accept"))) {
+      sessionAttributes.put(BINARY_DELTAS_ATTRIBUTE, Boolean.TRUE);
+    } else if (accessor.getCommand() == StompCommand.SUBSCRIBE && sessionAttributes != null
+        && Boolean.TRUE.equals(sessionAttributes.get(BINARY_DELTAS_ATTRIBUTE))
+        && accessor.getDestination() != null
+        && DELTA_TOPIC.matcher(accessor.getDestination()).matches()) {
+      accessor.setDestination(accessor.getDestination() + ".bin");
+    }
+    return message;
+  }
+
+  /**
+   * Отмечает рукопожатие на {@link #BINARY_ENDPOINT}: только такие сессии могут получать двоичные дельты
+   */
+  public HandshakeInterceptor rawTransportHandshake() {
+    return new HandshakeInterceptor() {
+      @Override
+      public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                     WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        attributes.put(RAW_TRANSPORT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+      }
+
+      @Override
+      public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                 WebSocketHandler wsHandler, Exception exception) {
+      }
+    };
+  }
+
+  private static boolean acceptsBinary(String accept) {
+    return accept != null && MimeTypeUtils.parseMimeTypes(accept).contains(GameDeltaCodec.MIME_TYPE);
+  }
+}
@@ -0,0 +1,153 @@
+package org.example.marrakech.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.example.marrakech.jfr.GameTrace;
+import org.example.marrakech.jfr.TurnPhaseEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Рассылает сообщения в топики игр вне потока команды.
+ * Полезная нагрузка кодируется один раз на формат, брокер раздает один и тот же буфер всем подписчикам.
+ * Сообщение топика без подписчиков ({@link TopicSubscriptions}) не кодируется и не отправляется.
+ * Игры распределены по полосам с одним потоком и ограниченной очередью, поэтому сообщения одной игры
+ * уходят в порядке отправки. При переполнении очереди сообщение отбрасывается: клиент увидит пропуск
+ * номера дельты и догонит состояние через /api/sync/resync
+ */
+@Component
+public class GameBroadcaster {
+
+  /**
+   * Сколько сообщений может ждать отправки в одной полосе
+   */
+  static final int QUEUE_CAPACITY = 1024;
+
+  private final SimpMessagingTemplate messagingTemplate;
+  private final ObjectMapper objectMapper;
+  private final TopicSubscriptions subscriptions;
+  private final ThreadPoolExecutor[] lanes;
+  private final AtomicLong dropped = new AtomicLong();
+
+  @Autowired
+  public GameBroadcaster(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper,
+                         TopicSubscriptions subscriptions) {
+    this(messagingTemplate, objectMapper, subscriptions, Runtime.getRuntime().availableProcessors(), QUEUE_CAPACITY);
+  }
+
+  GameBroadcaster(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper,
+                  TopicSubscriptions subscriptions, int laneCount, int queueCapacity) {
+    this.messagingTemplate = messagingTemplate;
+    this.objectMapper = objectMapper;
+    this.subscriptions = subscriptions;
+    this.lanes = new ThreadPoolExecutor[laneCount];
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("game-broadcast-");
+    for (int i = 0; i < laneCount; i++) {
+      lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(queueCapacity), threadFactory,
+          (task, executor) -> dropped.incrementAndGet());
+    }
+  }
+
+  /**
+   * Ставит сообщение игры в очередь на рассылку
+   *
+   * @param gameId      идентификатор игры, определяет полосу
+   * @param destination топик
+   * @param payload     сообщение
+   */
+  public void broadcast(Long gameId, String destination, Object payload) {
+    broadcast(gameId, destination, () -> toJson(destination, payload), MimeTypeUtils.APPLICATION_JSON);
+  }
+
+  /**
+   * Ставит в очередь на рассылку уже закодированное сообщение.
+   * Кодирование выполняется в потоке рассылки, в той же полосе, что и остальные сообщения игры
+   *
+   * @param gameId      идентификатор игры, определяет полосу
+   * @param destination топик
+   * @param body        кодирует сообщение в байты
+   * @param contentType тип содержимого кадра
+   */
+  public void broadcast(Long gameId, String destination, Supplier<byte[]> body, MimeType contentType) {
+    int moveNumber = GameTrace.currentMoveNumber();
+    lanes[Math.floorMod(gameId.hashCode(), lanes.length)]
+        .execute(() -> send(gameId, moveNumber, destination, body, contentType));
+  }
+
+  /**
+   * Есть ли у топика подписчики: без них сообщение можно не готовить
+   */
+  public boolean hasSubscribers(String destination) {
+    return subscriptions.hasSubscribers(destination);
+  }
+
+  /**
+   * Сколько сообщений отброшено из-за переполнения очередей
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Сколько сообщений сейчас ждет отправки
+   */
+  public int getQueuedCount() {
+    int queued = 0;
+    for (ThreadPoolExecutor lane : lanes) {
+      queued += lane.getQueue().size();
+    }
+    return queued;
+  }
+
+  private void send(Long gameId, int moveNumber, String destination, Supplier<byte[]> body, MimeType contentType) {
+    // Подписчики проверяются при отправке: пока сообщение ждало в очереди, они могли появиться или уйти
+    if (!subscriptions.hasSubscribers(destination)) {
+      return;
+    }
+    TurnPhaseEvent serialization = GameTrace.phase(TurnPhaseEvent.SERIALIZATION, destination, gameId, moveNumber);
+    byte[] bytes = body.get();
+    serialization.commit();
+
+    TurnPhaseEvent broadcast = GameTrace.phase(TurnPhaseEvent.BROADCAST, destination, gameId, moveNumber);
+    messagingTemplate.send(destination, message(bytes, contentType));
+    broadcast.commit();
+  }
+
+  private byte[] toJson(String destination, Object payload) {
+    try {
+      return objectMapper.writeValueAsBytes(payload);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Не удалось сериализовать сообщение для " + destination, e);
+    }
+  }
+
+  private static Message<byte[]> message(byte[] body, MimeType contentType) {
+    SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    headers.setContentType(contentType);
+    headers.setLeaveMutable(true);
+    return MessageBuilder.createMessage(body, headers.getMessageHeaders());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+  }
+}
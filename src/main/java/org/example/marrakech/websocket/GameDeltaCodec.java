@@ -0,0 +1,352 @@
+package org.example.marrakech.websocket;
+
+import org.example.marrakech.dto.CarpetPlacedMessage;
+import org.example.marrakech.dto.FieldUpdateMessage;
+import org.example.marrakech.dto.GameDelta;
+import org.example.marrakech.dto.PaymentNotificationMessage;
+import org.example.marrakech.dto.PlayerScore;
+import org.example.marrakech.game.BoardState;
+import org.example.marrakech.game.Direction;
+import org.springframework.util.MimeType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Компактное двоичное представление {@link GameDelta}.
+ * Клетка поля занимает один байт (y * 7 + x), цвет передается индексом из {@link BoardState#COLORS},
+ * игрок – номером места в игре (turn_order). Числа записываются как varint.
+ * <p>
+ * Формат: байт версии формата, varint gameId, varint sequence, два байта маски полей,
+ * затем присутствующие поля в порядке битов маски (см. константы F_*).
+ * Игрок без места (например, вышедший из ожидающей игры) записывается как 0xFF и имя в UTF-8
+ */
+public final class GameDeltaCodec {
+
+  /**
+   * Тип содержимого двоичных кадров. Подтип octet-stream нужен, чтобы STOMP-кадр ушел
+   * двоичным WebSocket-сообщением; через SockJS двоичные кадры не передаются
+   */
+  public static final MimeType MIME_TYPE = MimeType.valueOf("application/octet-stream;format=marrakech-delta-1");
+
+  static final int FORMAT_VERSION = 1;
+
+  private static final int F_VERSION = 0;
+  private static final int F_STATUS = 1;
+  private static final int F_TURN = 2;
+  private static final int F_MOVE_NUMBER = 3;
+  private static final int F_WINNER = 4;
+  private static final int F_DICE = 5;
+  private static final int F_ASSAM = 6;
+  private static final int F_PAYMENTS = 7;
+  private static final int F_CARPET = 8;
+  private static final int F_FIELD_UPDATES = 9;
+  private static final int F_ELIMINATED = 10;
+  private static final int F_LEFT = 11;
+  private static final int F_RESULTS = 12;
+  private static final int F_EPOCH = 13;
+
+  private static final List<String> STATUSES = List.of("waiting", "in_progress", "finished");
+  private static final int NO_SLOT = 0xFF;
+
+  private GameDeltaCodec() {
+  }
+
+  /**
+   * Кодирует дельту
+   *
+   * @param delta  дельта игры
+   * @param slotOf номер места игрока по имени или -1, если места нет
+   */
+  public static byte[] encode(GameDelta delta, ToIntFunction<String> slotOf) {
+    Writer out = new Writer(slotOf);
+    out.writeByte(FORMAT_VERSION);
+    out.writeVarLong(delta.getGameId());
+    out.writeVarLong(delta.getSequence() == null ? 0 : delta.getSequence());
+    out.writeShort(mask(delta));
+
+    if (delta.getVersion() != null) {
+      out.writeVarLong(delta.getVersion());
+    }
+    if (delta.getStatus() != null) {
+      out.writeByte(statusCode(delta.getStatus()));
+    }
+    if (delta.getCurrentTurnUsername() != null) {
+      out.writePlayer(delta.getCurrentTurnUsername());
+    }
+    if (delta.getMoveNumber() != null) {
+      out.writeVarLong(delta.getMoveNumber());
+    }
+    if (delta.getWinnerUsername() != null) {
+      out.writePlayer(delta.getWinnerUsername());
+    }
+    if (delta.getDiceRoll() != null) {
+      out.writeByte(delta.getDiceRoll());
+    }
+    if (delta.getAssamPositionX() != null) {
+      int cell = BoardState.index(delta.getAssamPositionX(), delta.getAssamPositionY());
+      out.writeByte(cell << 2 | Direction.fromName(delta.getAssamDirection()).ordinal());
+    }
+    if (delta.getPayments() != null) {
+      out.writeByte(delta.getPayments().size());
+      for (PaymentNotificationMessage payment : delta.getPayments()) {
+        out.writePlayer(payment.getPayerUsername());
+        out.writePlayer(payment.getPayeeUsername());
+        out.writeVarLong(payment.getAmount());
+      }
+    }
+    if (delta.getCarpet() != null) {
+      CarpetPlacedMessage carpet = delta.getCarpet();
+      out.writeByte(BoardState.index(carpet.getFirstX(), carpet.getFirstY()));
+      out.writeByte(BoardState.index(carpet.getSecondX(), carpet.getSecondY()));
+      out.writeByte(BoardState.colorIndex(carpet.getColor()));
+      out.writePlayer(carpet.getUsername());
+    }
+    if (delta.getFieldUpdates() != null) {
+      out.writeByte(delta.getFieldUpdates().size());
+      for (FieldUpdateMessage.CellUpdate update : delta.getFieldUpdates()) {
+        out.writeByte(BoardState.index(update.getX(), update.getY()));
+        out.writeByte(update.getCarpetColor() == null ? NO_SLOT : BoardState.colorIndex(update.getCarpetColor()));
+      }
+    }
+    if (delta.getEliminatedUsernames() != null) {
+      out.writeByte(delta.getEliminatedUsernames().size());
+      delta.getEliminatedUsernames().forEach(out::writePlayer);
+    }
+    if (delta.getLeftUsername() != null) {
+      out.writePlayer(delta.getLeftUsername());
+    }
+    if (delta.getResults() != null) {
+      out.writeByte(delta.getResults().size());
+      for (PlayerScore score : delta.getResults()) {
+        out.writePlayer(score.getUsername());
+        out.writeVarLong(score.getCoins());
+        out.writeVarLong(score.getVisibleCarpetTiles());
+        out.writeVarLong(score.getTotalScore());
+        out.writeByte(score.getPlace());
+      }
+    }
+    if (delta.getEpoch() != null) {
+      out.writeVarLong(delta.getEpoch());
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Декодирует дельту
+   *
+   * @param bytes      закодированная дельта
+   * @param usernameOf имя игрока по номеру места
+   */
+  public static GameDelta decode(byte[] bytes, IntFunction<String> usernameOf) {
+    Reader in = new Reader(ByteBuffer.wrap(bytes), usernameOf);
+    int formatVersion = in.readByte();
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IllegalArgumentException("Неизвестная версия формата: " + formatVersion);
+    }
+    GameDelta delta = new GameDelta(in.readVarLong());
+    delta.setSequence(in.readVarLong());
+    int mask = in.readShort();
+
+    if (has(mask, F_VERSION)) {
+      delta.setVersion(in.readVarLong());
+    }
+    if (has(mask, F_STATUS)) {
+      delta.setStatus(STATUSES.get(in.readByte()));
+    }
+    if (has(mask, F_TURN)) {
+      delta.setCurrentTurnUsername(in.readPlayer());
+    }
+    if (has(mask, F_MOVE_NUMBER)) {
+      delta.setMoveNumber((int) in.readVarLong());
+    }
+    if (has(mask, F_WINNER)) {
+      delta.setWinnerUsername(in.readPlayer());
+    }
+    if (has(mask, F_DICE)) {
+      delta.setDiceRoll(in.readByte());
+    }
+    if (has(mask, F_ASSAM)) {
+      int packed = in.readByte();
+      int cell = packed >>> 2;
+      delta.setAssamPositionX(cell % BoardState.SIZE);
+      delta.setAssamPositionY(cell / BoardState.SIZE);
+      delta.setAssamDirection(Direction.ofOrdinal(packed & 3).getName());
+    }
+    if (has(mask, F_PAYMENTS)) {
+      int count = in.readByte();
+      for (int i = 0; i < count; i++) {
+        String payer = in.readPlayer();
+        String payee = in.readPlayer();
+        delta.addPayment(new PaymentNotificationMessage(delta.getGameId(), payer, payee, (int) in.readVarLong()));
+      }
+    }
+    if (has(mask, F_CARPET)) {
+      int first = in.readByte();
+      int second = in.readByte();
+      String color = BoardState.COLORS.get(in.readByte());
+      delta.setCarpet(new CarpetPlacedMessage(
+          first % BoardState.SIZE, first / BoardState.SIZE,
+          second % BoardState.SIZE, second / BoardState.SIZE,
+          color, in.readPlayer()));
+    }
+    if (has(mask, F_FIELD_UPDATES)) {
+      int count = in.readByte();
+      List<FieldUpdateMessage.CellUpdate> updates = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        int cell = in.readByte();
+        int color = in.readByte();
+        updates.add(new FieldUpdateMessage.CellUpdate(cell % BoardState.SIZE, cell / BoardState.SIZE,
+            color == NO_SLOT ? null : BoardState.COLORS.get(color)));
+      }
+      delta.addFieldUpdates(updates);
+    }
+    if (has(mask, F_ELIMINATED)) {
+      int count = in.readByte();
+      for (int i = 0; i < count; i++) {
+        delta.addEliminated(in.readPlayer());
+      }
+    }
+    if (has(mask, F_LEFT)) {
+      delta.setLeftUsername(in.readPlayer());
+    }
+    if (has(mask, F_RESULTS)) {
+      int count = in.readByte();
+      List<PlayerScore> results = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        String username = in.readPlayer();
+        int coins = (int) in.readVarLong();
+        int visibleTiles = (int) in.readVarLong();
+        int totalScore = (int) in.readVarLong();
+        results.add(new PlayerScore(username, coins, visibleTiles, totalScore, in.readByte()));
+      }
+      delta.setResults(results);
+    }
+    if (has(mask, F_EPOCH)) {
+      delta.setEpoch(in.readVarLong());
+    }
+    return delta;
+  }
+
+  private static int mask(GameDelta delta) {
+    int mask = 0;
+    mask |= bit(delta.getVersion() != null, F_VERSION);
+    mask |= bit(delta.getStatus() != null, F_STATUS);
+    mask |= bit(delta.getCurrentTurnUsername() != null, F_TURN);
+    mask |= bit(delta.getMoveNumber() != null, F_MOVE_NUMBER);
+    mask |= bit(delta.getWinnerUsername() != null, F_WINNER);
+    mask |= bit(delta.getDiceRoll() != null, F_DICE);
+    mask |= bit(delta.getAssamPositionX() != null, F_ASSAM);
+    mask |= bit(delta.getPayments() != null, F_PAYMENTS);
+    mask |= bit(delta.getCarpet() != null, F_CARPET);
+    mask |= bit(delta.getFieldUpdates() != null, F_FIELD_UPDATES);
+    mask |= bit(delta.getEliminatedUsernames() != null, F_ELIMINATED);
+    mask |= bit(delta.getLeftUsername() != null, F_LEFT);
+    mask |= bit(delta.getResults() != null, F_RESULTS);
+    mask |= bit(delta.getEpoch() != null, F_EPOCH);
+    return mask;
+  }
+
+  private static int bit(boolean present, int field) {
+    return present ? 1 << field : 0;
+  }
+
+  private static boolean has(int mask, int field) {
+    return (mask & (1 << field)) != 0;
+  }
+
+  private static int statusCode(String status) {
+    for (int code = 0; code < STATUSES.size(); code++) {
+      if (STATUSES.get(code).equalsIgnoreCase(status)) {
+        return code;
+      }
+    }
+    throw new IllegalArgumentException("Неизвестный статус игры: " + status);
+  }
+
+  private static final class Writer {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    private final ToIntFunction<String> slotOf;
+
+    private Writer(ToIntFunction<String> slotOf) {
+      this.slotOf = slotOf;
+    }
+
+    private void writeByte(int value) {
+      bytes.write(value);
+    }
+
+    private void writeShort(int value) {
+      bytes.write(value >>> 8);
+      bytes.write(value);
+    }
+
+    private void writeVarLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        bytes.write((int) (value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes.write((int) value);
+    }
+
+    private void writePlayer(String username) {
+      int slot = slotOf.applyAsInt(username);
+      if (slot >= 0 && slot < NO_SLOT) {
+        writeByte(slot);
+        return;
+      }
+      byte[] name = username.getBytes(StandardCharsets.UTF_8);
+      writeByte(NO_SLOT);
+      writeVarLong(name.length);
+      bytes.writeBytes(name);
+    }
+
+    private byte[] toByteArray() {
+      return bytes.toByteArray();
+    }
+  }
+
+  private static final class Reader {
+    private final ByteBuffer buffer;
+    private final IntFunction<String> usernameOf;
+
+    private Reader(ByteBuffer buffer, IntFunction<String> usernameOf) {
+      this.buffer = buffer;
+      this.usernameOf = usernameOf;
+    }
+
+    private int readByte() {
+      return buffer.get() & 0xFF;
+    }
+
+    private int readShort() {
+      return buffer.getShort() & 0xFFFF;
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        int next = readByte();
+        value |= (long) (next & 0x7F) << shift;
+        if ((next & 0x80) == 0) {
+          return value;
+        }
+      }
+    }
+
+    private String readPlayer() {
+      int slot = readByte();
+      if (slot != NO_SLOT) {
+        return usernameOf.apply(slot);
+      }
+      byte[] name = new byte[(int) readVarLong()];
+      buffer.get(name);
+      return new String(name, StandardCharsets.UTF_8);
+    }
+  }
+}
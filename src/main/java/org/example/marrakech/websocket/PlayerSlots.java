@@ -0,0 +1,64 @@
+package org.example.marrakech.websocket;
+
+import org.example.marrakech.entity.GamePlayer;
+import org.example.marrakech.repository.GamePlayerRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Номера мест игроков (turn_order) для двоичного протокола.
+ * Состав игры читается из базы один раз, дальше кэш меняется вместе с местами игры: лобби сообщает
+ * о зафиксированных входах и выходах. Игрок, которого нет в кэше, кодируется по имени
+ */
+@Component
+public class PlayerSlots {
+
+  private final GamePlayerRepository gamePlayerRepository;
+  private final Map<Long, Map<String, Integer>> slotsByGame = new ConcurrentHashMap<>();
+
+  public PlayerSlots(GamePlayerRepository gamePlayerRepository) {
+    this.gamePlayerRepository = gamePlayerRepository;
+  }
+
+  /**
+   * Номера мест игроков игры по именам; неизменяемый снимок
+   */
+  public Map<String, Integer> slots(Long gameId) {
+    return slotsByGame.computeIfAbsent(gameId, this::load);
+  }
+
+  /**
+   * Вход на место зафиксирован. Если состав игры еще не читался, он прочитается целиком при первом обращении
+   */
+  public void seat(Long gameId, String username, int slot) {
+    slotsByGame.computeIfPresent(gameId, (id, slots) -> {
+      Map<String, Integer> seated = new HashMap<>(slots);
+      seated.put(username, slot);
+      return Map.copyOf(seated);
+    });
+  }
+
+  /**
+   * Выход из игры зафиксирован: место может достаться другому игроку
+   */
+  public void vacate(Long gameId, String username) {
+    slotsByGame.computeIfPresent(gameId, (id, slots) -> {
+      Map<String, Integer> seated = new HashMap<>(slots);
+      seated.remove(username);
+      return Map.copyOf(seated);
+    });
+  }
+
+  public void evict(Long gameId) {
+    slotsByGame.remove(gameId);
+  }
+
+  private Map<String, Integer> load(Long gameId) {
+    return gamePlayerRepository.findByGameIdOrderByTurnOrderAsc(gameId).stream()
+        .collect(Collectors.toUnmodifiableMap(gp -> gp.getUser().getUsername(), GamePlayer::getTurnOrder));
+  }
+}
@@ -0,0 +1,77 @@
+package org.example.marrakech.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Число подписчиков каждого топика по кадрам SUBSCRIBE, UNSUBSCRIBE и DISCONNECT.
+ * Стоит в цепочке после {@link DeltaFormatInterceptor}, поэтому видит уже выбранный формат дельт:
+ * {@link GameBroadcaster} не кодирует сообщения для топиков, на которые никто не подписан
+ */
+@Component
+public class TopicSubscriptions implements ChannelInterceptor {
+
+  /**
+   * Подписки сессий: идентификатор подписки – топик
+   */
+  private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+  private final Map<String, Integer> subscribers = new ConcurrentHashMap<>();
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+    if (accessor == null || accessor.getCommand() == null || accessor.getSessionId() == null) {
+      return message;
+    }
+
+    String sessionId = accessor.getSessionId();
+    if (accessor.getCommand() == StompCommand.SUBSCRIBE
+        && accessor.getSubscriptionId() != null && accessor.getDestination() != null) {
+      subscribe(sessionId, accessor.getSubscriptionId(), accessor.getDestination());
+    } else if (accessor.getCommand() == StompCommand.UNSUBSCRIBE && accessor.getSubscriptionId() != null) {
+      unsubscribe(sessionId, accessor.getSubscriptionId());
+    } else if (accessor.getCommand() == StompCommand.DISCONNECT) {
+      Map<String, String> subscriptions = sessions.remove(sessionId);
+      if (subscriptions != null) {
+        subscriptions.values().forEach(this::decrement);
+      }
+    }
+    return message;
+  }
+
+  /**
+   * Есть ли у топика хотя бы один подписчик
+   */
+  public boolean hasSubscribers(String destination) {
+    return subscribers.containsKey(destination);
+  }
+
+  private void subscribe(String sessionId, String subscriptionId, String destination) {
+    String previous = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+        .put(subscriptionId, destination);
+    subscribers.merge(destination, 1, Integer::sum);
+    if (previous != null) {
+      decrement(previous);
+    }
+  }
+
+  private void unsubscribe(String sessionId, String subscriptionId) {
+    Map<String, String> subscriptions = sessions.get(sessionId);
+    String destination = subscriptions == null ? null : subscriptions.remove(subscriptionId);
+    if (destination != null) {
+      decrement(destination);
+    }
+  }
+
+  private void decrement(String destination) {
+    subscribers.computeIfPresent(destination, (topic, count) -> count > 1 ? count - 1 : null);
+  }
+}
@@ -1,41 +1,59 @@
 package org.example.marrakech.websocket;
 
 import org.example.marrakech.entity.Game;
-import org.example.marrakech.entity.GamePlayer;
 import org.example.marrakech.entity.User;
-import org.example.marrakech.repository.GamePlayerRepository;
 import org.example.marrakech.repository.UserRepository;
+import org.example.marrakech.service.GameLobbyService;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class WebSocketEventListener {
 
   private final UserRepository userRepository;
-  private final GamePlayerRepository gamePlayerRepository;
-  private final SimpMessagingTemplate messagingTemplate;
+  private final GameLobbyService gameLobbyService;
+  private final Set<String> connectedSessions = ConcurrentHashMap.newKeySet();
 
   public WebSocketEventListener(UserRepository userRepository,
-                                GamePlayerRepository gamePlayerRepository,
-                                SimpMessagingTemplate messagingTemplate) {
+                                GameLobbyService gameLobbyService) {
     this.userRepository = userRepository;
-    this.gamePlayerRepository = gamePlayerRepository;
-    this.messagingTemplate = messagingTemplate;
+    this.gameLobbyService = gameLobbyService;
+  }
+
+  /**
+   * Число подключенных STOMP-сессий
+   */
+  public int getConnectedSessionCount() {
+    return connectedSessions.size();
+  }
+
+  @EventListener
+  public void handleWebSocketConnected(SessionConnectedEvent event) {
+    String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+    if (sessionId != null) {
+      connectedSessions.add(sessionId);
+    }
   }
 
   @EventListener
   public void handleWebSocketDisconnect(SessionDisconnectEvent event) {
+    // Событие может прийти несколько раз для одной сессии, поэтому сессии хранятся множеством
+    connectedSessions.remove(event.getSessionId());
+
     // Если у события нет аутентифицированного пользователя – выходим
     if (event.getUser() == null) {
       return;
     }
 
     String username = event.getUser().getName();
-    Optional<User> userOpt = userRepository.findByUsername(username);
+    Optional<User> userOpt = userRepository.findWithCurrentGameByUsername(username);
     if (userOpt.isEmpty()) {
       return;
     }
@@ -48,15 +66,7 @@ public class WebSocketEventListener {
 
     Game game = user.getCurrentGame();
     if ("waiting".equalsIgnoreCase(game.getStatus())) {
-      Optional<GamePlayer> gpOpt = gamePlayerRepository.findByGameIdAndUserId(game.getId(), user.getId());
-      gpOpt.ifPresent(gamePlayerRepository::delete);
-      // Отвязываем игру от пользователя
-      user.setCurrentGame(null);
-      userRepository.save(user);
-      messagingTemplate.convertAndSend(
-          "/topic/game/" + game.getId() + "/playerLeft",
-          username + " покинул игру до её начала."
-      );
+      gameLobbyService.leaveWaitingGame(game.getId(), user);
     }
   }
 }
@@ -0,0 +1,22 @@
+-- Денормализуем game_id в carpet_positions, чтобы верхний слой поля читался по индексу,
+-- без подзапроса к carpets
+ALTER TABLE carpet_positions ADD COLUMN game_id INT;
+
+UPDATE carpet_positions cp
+SET game_id = c.game_id
+FROM carpets c
+WHERE c.carpet_id = cp.carpet_id;
+
+-- Записи ковров без игры не видны ни одной игре
+DELETE FROM carpet_positions WHERE game_id IS NULL;
+
+ALTER TABLE carpet_positions
+    ALTER COLUMN game_id SET NOT NULL;
+
+ALTER TABLE carpet_positions
+    ADD CONSTRAINT fk_carpet_positions_game
+        FOREIGN KEY (game_id) REFERENCES games(game_id) ON DELETE CASCADE;
+
+CREATE INDEX idx_carpet_positions_game_cell_turn
+    ON carpet_positions (game_id, position_x, position_y, placement_turn DESC)
+    INCLUDE (carpet_id);
@@ -0,0 +1,4 @@
+-- Версии строк для оптимистической блокировки Game и GamePlayer
+ALTER TABLE games ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE game_players ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,18 @@
+-- Журнал событий игры: строки только добавляются, номер события последовательный в пределах игры
+CREATE TABLE game_journal (
+                              game_id INT NOT NULL REFERENCES games(game_id) ON DELETE CASCADE,
+                              event_number BIGINT NOT NULL,
+                              move_number INT NOT NULL,
+                              event_type VARCHAR(32) NOT NULL,
+                              payload TEXT NOT NULL,
+                              created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                              PRIMARY KEY (game_id, event_number)
+);
+
+-- Снимки состояния игры после события с тем же номером, чтобы восстановление не читало весь журнал
+CREATE TABLE game_journal_snapshots (
+                                        game_id INT NOT NULL REFERENCES games(game_id) ON DELETE CASCADE,
+                                        event_number BIGINT NOT NULL,
+                                        state TEXT NOT NULL,
+                                        PRIMARY KEY (game_id, event_number)
+);
@@ -0,0 +1,9 @@
+-- Зерно кубика игры: броски воспроизводятся по зерну и номеру хода.
+-- Уже созданные игры получают случайное зерно
+ALTER TABLE games ADD COLUMN dice_seed BIGINT;
+
+UPDATE games
+SET dice_seed = floor((random() * 2 - 1) * 9223372036854775807)::BIGINT;
+
+ALTER TABLE games
+    ALTER COLUMN dice_seed SET NOT NULL;
@@ -0,0 +1,36 @@
+package org.example.marrakech.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityConfigTest {
+
+  @Test
+  void adminEndpointsRequireConfiguredToken() {
+    AuthorizationManager<RequestAuthorizationContext> access = SecurityConfig.adminToken("s3cret");
+
+    assertTrue(granted(access, "s3cret"));
+    assertFalse(granted(access, "s3cre"));
+    assertFalse(granted(access, null));
+  }
+
+  @Test
+  void adminEndpointsAreClosedWithoutToken() {
+    AuthorizationManager<RequestAuthorizationContext> access = SecurityConfig.adminToken("");
+
+    assertFalse(granted(access, ""));
+    assertFalse(granted(access, null));
+  }
+
+  private static boolean granted(AuthorizationManager<RequestAuthorizationContext> access, String token) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/games/1/journal");
+    if (token != null) {
+      request.addHeader(SecurityConfig.ADMIN_TOKEN_HEADER, token);
+    }
+    return access.authorize(() -> null, new RequestAuthorizationContext(request)).isGranted();
+  }
+}
@@ -0,0 +1,127 @@
+package org.example.marrakech.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssamMovementTableTest {
+
+  /**
+   * Правила выхода за край поля: (клетка, направление) → (клетка, направление)
+   */
+  private static final Map<String, String> EDGE_RULES = Map.ofEntries(
+      // верхняя граница
+      Map.entry("0,0,up", "0,0,right"),
+      Map.entry("0,0,left", "0,0,down"),
+      Map.entry("1,0,up", "2,0,down"),
+      Map.entry("2,0,up", "1,0,down"),
+      Map.entry("3,0,up", "4,0,down"),
+      Map.entry("4,0,up", "3,0,down"),
+      Map.entry("5,0,up", "6,0,down"),
+      Map.entry("6,0,up", "5,0,down"),
+      // правая граница
+      Map.entry("6,0,right", "6,1,left"),
+      Map.entry("6,1,right", "6,0,left"),
+      Map.entry("6,2,right", "6,3,left"),
+      Map.entry("6,3,right", "6,2,left"),
+      Map.entry("6,4,right", "6,5,left"),
+      Map.entry("6,5,right", "6,4,left"),
+      Map.entry("6,6,right", "6,6,up"),
+      Map.entry("6,6,down", "6,6,left"),
+      // нижняя граница
+      Map.entry("5,6,down", "4,6,up"),
+      Map.entry("4,6,down", "5,6,up"),
+      Map.entry("3,6,down", "2,6,up"),
+      Map.entry("2,6,down", "3,6,up"),
+      Map.entry("1,6,down", "0,6,up"),
+      Map.entry("0,6,down", "1,6,up"),
+      // левая граница
+      Map.entry("0,6,left", "0,5,right"),
+      Map.entry("0,4,left", "0,3,right"),
+      Map.entry("0,2,left", "0,1,right"));
+
+  @Test
+  void move_insideBoard() {
+    int state = AssamMovementTable.move(3, 3, Direction.UP, 3);
+
+    assertEquals(3, AssamMovementTable.x(state));
+    assertEquals(0, AssamMovementTable.y(state));
+    assertEquals(Direction.UP, AssamMovementTable.direction(state));
+  }
+
+  @Test
+  void move_turnsAroundAtTopBorder() {
+    int state = AssamMovementTable.move(3, 3, Direction.UP, 4);
+
+    assertEquals(4, AssamMovementTable.x(state));
+    assertEquals(0, AssamMovementTable.y(state));
+    assertEquals(Direction.DOWN, AssamMovementTable.direction(state));
+  }
+
+  @Test
+  void move_turnsInCorner() {
+    int state = AssamMovementTable.move(0, 0, Direction.UP, 2);
+
+    assertEquals(1, AssamMovementTable.x(state));
+    assertEquals(0, AssamMovementTable.y(state));
+    assertEquals(Direction.RIGHT, AssamMovementTable.direction(state));
+  }
+
+  @Test
+  void move_staysWhenNoEdgeRule() {
+    int state = AssamMovementTable.move(0, 1, Direction.LEFT, 1);
+
+    assertEquals(AssamMovementTable.encode(0, 1, Direction.LEFT), state);
+  }
+
+  @Test
+  void move_matchesStepByStepWalk() {
+    for (int x = 0; x < 7; x++) {
+      for (int y = 0; y < 7; y++) {
+        for (String direction : List.of("up", "down", "left", "right")) {
+          String expected = x + "," + y + "," + direction;
+          for (int roll = 0; roll <= AssamMovementTable.MAX_ROLL; roll++) {
+            int state = AssamMovementTable.move(x, y, Direction.fromName(direction), roll);
+            String actual = AssamMovementTable.x(state) + "," + AssamMovementTable.y(state) + ","
+                + AssamMovementTable.direction(state).getName();
+            assertEquals(expected, actual, "из " + x + "," + y + "," + direction + " на " + roll);
+            expected = stepOnce(expected);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Один шаг Ассама без таблицы переходов, как он считался до нее: внутри поля – на клетку вперед,
+   * за краем – по правилу края, без правила – на месте
+   */
+  private static String stepOnce(String position) {
+    String[] parts = position.split(",");
+    int x = Integer.parseInt(parts[0]);
+    int y = Integer.parseInt(parts[1]);
+    String direction = parts[2];
+
+    int newX = x;
+    int newY = y;
+    switch (direction) {
+      case "up" -> newY--;
+      case "down" -> newY++;
+      case "left" -> newX--;
+      case "right" -> newX++;
+      default -> throw new IllegalArgumentException(direction);
+    }
+    if (newX >= 0 && newX < 7 && newY >= 0 && newY < 7) {
+      return newX + "," + newY + "," + direction;
+    }
+    return EDGE_RULES.getOrDefault(position, position);
+  }
+
+  @Test
+  void move_invalidDiceRoll() {
+    assertThrows(IllegalArgumentException.class, () -> AssamMovementTable.move(3, 3, Direction.UP, 5));
+  }
+}
@@ -0,0 +1,116 @@
+package org.example.marrakech.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardStateTest {
+
+  private static final int RED = BoardState.colorIndex("red");
+  private static final int BLUE = BoardState.colorIndex("blue");
+
+  @Test
+  void emptyBoard() {
+    BoardState board = new BoardState();
+
+    assertTrue(board.isEmpty(3, 3));
+    assertNull(board.getTopColor(3, 3));
+    assertArrayEquals(new int[]{0, 0, 0, 0}, board.visibleCountsByColor());
+  }
+
+  @Test
+  void place_newerCarpetCoversOlder() {
+    BoardState board = new BoardState();
+    board.place(1L, 10L, RED, 2, 2, 1);
+    board.place(1L, 10L, RED, 2, 3, 1);
+    board.place(2L, 20L, BLUE, 2, 3, 2);
+    board.place(2L, 20L, BLUE, 2, 4, 2);
+
+    assertEquals(1L, board.getTopCarpetId(2, 2));
+    assertEquals(2L, board.getTopCarpetId(2, 3));
+    assertEquals(20L, board.getTopOwnerId(2, 3));
+    assertEquals("blue", board.getTopColor(2, 3));
+    assertEquals(2, board.getTopPlacementTurn(2, 3));
+    assertArrayEquals(new int[]{1, 2, 0, 0}, board.visibleCountsByColor());
+  }
+
+  @Test
+  void place_olderRecordDoesNotCoverNewer() {
+    BoardState board = new BoardState();
+    board.place(2L, 20L, BLUE, 2, 3, 2);
+    board.place(1L, 10L, RED, 2, 3, 1);
+
+    assertEquals("blue", board.getTopColor(2, 3));
+  }
+
+  @Test
+  void diff_reportsChangedCells() {
+    BoardState before = new BoardState();
+    before.place(1L, 10L, RED, 2, 2, 1);
+    before.place(1L, 10L, RED, 2, 3, 1);
+    before.place(2L, 20L, BLUE, 2, 3, 2);
+    before.place(2L, 20L, BLUE, 2, 4, 2);
+
+    BoardState after = new BoardState();
+    after.place(1L, 10L, RED, 2, 2, 1);
+    after.place(1L, 10L, RED, 2, 3, 1);
+
+    assertEquals((1L << BoardState.index(2, 3)) | (1L << BoardState.index(2, 4)), before.diff(after));
+    assertEquals(0L, after.diff(after));
+  }
+
+  @Test
+  void ownerMask() {
+    BoardState board = new BoardState();
+    board.place(1L, 10L, RED, 0, 0, 1);
+    board.place(1L, 10L, RED, 1, 0, 1);
+    board.place(2L, 20L, BLUE, 1, 0, 2);
+    board.place(2L, 20L, BLUE, 1, 1, 2);
+
+    assertEquals(1L << BoardState.index(0, 0), board.ownerMask(10L));
+    assertEquals((1L << BoardState.index(1, 0)) | (1L << BoardState.index(1, 1)), board.ownerMask(20L));
+  }
+
+  @Test
+  void regionSize_mergesAdjacentPlacements() {
+    BoardState board = new BoardState();
+    board.place(1L, 10L, RED, 2, 2, 1);
+    board.place(1L, 10L, RED, 2, 3, 1);
+    board.place(1L, 10L, RED, 3, 3, 5);
+    board.place(1L, 10L, RED, 4, 3, 5);
+
+    assertEquals(4, board.getRegionSize(2, 2));
+    assertEquals(4, board.getRegionSize(4, 3));
+    assertEquals(0, board.getRegionSize(0, 0));
+  }
+
+  @Test
+  void regionSize_splitsWhenCovered() {
+    BoardState board = new BoardState();
+    board.place(1L, 10L, RED, 1, 3, 1);
+    board.place(1L, 10L, RED, 2, 3, 1);
+    board.place(1L, 10L, RED, 3, 3, 3);
+    board.place(1L, 10L, RED, 4, 3, 3);
+    board.place(2L, 20L, BLUE, 3, 3, 4);
+    board.place(2L, 20L, BLUE, 3, 4, 4);
+
+    assertEquals(2, board.getRegionSize(1, 3));
+    assertEquals(1, board.getRegionSize(4, 3));
+    assertEquals(2, board.getRegionSize(3, 4));
+  }
+
+  @Test
+  void regionSize_doesNotWrapAcrossRows() {
+    BoardState board = new BoardState();
+    board.place(1L, 10L, RED, 6, 0, 1);
+    board.place(1L, 10L, RED, 0, 1, 2);
+
+    assertEquals(1, board.getRegionSize(6, 0));
+    assertEquals(1, board.getRegionSize(0, 1));
+  }
+
+  @Test
+  void colorIndex_unknownColor() {
+    assertThrows(IllegalArgumentException.class, () -> BoardState.colorIndex("purple"));
+  }
+}
@@ -0,0 +1,65 @@
+package org.example.marrakech.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaHistoryTest {
+
+  private static final long EPOCH = 17L;
+
+  @Test
+  void append_numbersDeltasFromOne() {
+    DeltaHistory<String> history = new DeltaHistory<>(4, EPOCH);
+
+    assertEquals(0L, history.getLastSequence());
+    assertEquals(1L, history.append("a"));
+    assertEquals(2L, history.append("b"));
+    assertEquals(2L, history.getLastSequence());
+  }
+
+  @Test
+  void since_returnsMissingDeltasInOrder() {
+    DeltaHistory<String> history = new DeltaHistory<>(4, EPOCH);
+    history.append("a");
+    history.append("b");
+    history.append("c");
+
+    assertEquals(List.of("b", "c"), history.since(EPOCH, 1));
+    assertEquals(List.of("a", "b", "c"), history.since(EPOCH, 0));
+    assertEquals(List.of(), history.since(EPOCH, 3));
+  }
+
+  @Test
+  void since_evictedDeltasRequireSnapshot() {
+    DeltaHistory<String> history = new DeltaHistory<>(4, EPOCH);
+    for (String delta : List.of("a", "b", "c", "d", "e", "f")) {
+      history.append(delta);
+    }
+
+    assertEquals(List.of("c", "d", "e", "f"), history.since(EPOCH, 2));
+    assertNull(history.since(EPOCH, 1));
+  }
+
+  @Test
+  void since_sequenceFromAnotherHistoryRequiresSnapshot() {
+    DeltaHistory<String> history = new DeltaHistory<>(4, EPOCH);
+    history.append("a");
+
+    assertNull(history.since(EPOCH, 5));
+    assertNull(history.since(EPOCH, -1));
+  }
+
+  @Test
+  void since_sequenceFromAnotherEpochRequiresSnapshot() {
+    DeltaHistory<String> history = new DeltaHistory<>(4, EPOCH);
+    history.append("a");
+    history.append("b");
+
+    // После перезапуска номер 1 из прежней истории указывает на другое изменение
+    assertNull(history.since(EPOCH + 1, 1));
+    assertEquals(new DeltaHistory.Position(EPOCH, 2), history.position());
+  }
+}
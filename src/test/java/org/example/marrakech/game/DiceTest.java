@@ -0,0 +1,49 @@
+package org.example.marrakech.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiceTest {
+
+  @Test
+  void rollIsDeterminedBySeedAndMove() {
+    for (int move = 1; move <= 100; move++) {
+      assertEquals(Dice.roll(42L, move), Dice.roll(42L, move));
+    }
+  }
+
+  @Test
+  void facesFollowTheDie() {
+    int[] counts = new int[5];
+    for (int move = 1; move <= 60_000; move++) {
+      counts[Dice.roll(7L, move)]++;
+    }
+
+    assertEquals(0, counts[0]);
+    // Грани 1, 2, 2, 3, 3, 4: двойки и тройки выпадают вдвое чаще
+    assertEquals(1.0 / 6, counts[1] / 60_000.0, 0.01);
+    assertEquals(2.0 / 6, counts[2] / 60_000.0, 0.01);
+    assertEquals(2.0 / 6, counts[3] / 60_000.0, 0.01);
+    assertEquals(1.0 / 6, counts[4] / 60_000.0, 0.01);
+  }
+
+  @Test
+  void differentSeedsGiveDifferentRolls() {
+    int same = 0;
+    for (int move = 1; move <= 100; move++) {
+      if (Dice.roll(1L, move) == Dice.roll(2L, move)) {
+        same++;
+      }
+    }
+
+    assertTrue(same < 60, "совпало " + same + " бросков из 100");
+  }
+
+  @Test
+  void commitmentIsStablePerSeed() {
+    assertEquals(Dice.commitment(42L), Dice.commitment(42L));
+    assertNotEquals(Dice.commitment(42L), Dice.commitment(43L));
+    assertEquals(64, Dice.commitment(42L).length());
+  }
+}
@@ -0,0 +1,99 @@
+package org.example.marrakech.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameReplayTest {
+
+  private static final long LERA = 10L;
+  private static final long VLAD = 20L;
+
+  private static final List<GameEvent> OPENING = List.of(
+      new GameEvent.GameStarted(List.of(
+          new GameEvent.Seat(LERA, "lera", "red", 0, 30),
+          new GameEvent.Seat(VLAD, "vlad", "blue", 1, 30)), LERA, 42L),
+      new GameEvent.DiceRolled(2),
+      new GameEvent.AssamMoved("up", 3, 1, "up"),
+      new GameEvent.CarpetPlaced(1L, LERA, "red", 3, 2, 4, 2, 1),
+      new GameEvent.TurnSwitched(VLAD, 2),
+      new GameEvent.DiceRolled(1),
+      new GameEvent.AssamMoved("down", 3, 2, "down"),
+      new GameEvent.PaymentMade(VLAD, LERA, 1),
+      new GameEvent.CarpetPlaced(2L, VLAD, "blue", 4, 2, 5, 2, 2)
+  );
+
+  @Test
+  void replayRestoresPositionTurnCoinsAndBoard() {
+    GameReplay replay = replay(OPENING);
+
+    assertTrue(replay.isStarted());
+    assertEquals("in_progress", replay.getStatus());
+    assertEquals(3, replay.getAssamPositionX());
+    assertEquals(2, replay.getAssamPositionY());
+    assertEquals("down", replay.getAssamDirection());
+    assertEquals(1, replay.getLastDiceRoll());
+    assertEquals(VLAD, replay.getCurrentTurnUserId());
+    assertEquals(2, replay.getCurrentMoveNumber());
+    assertEquals(42L, replay.getDiceSeed());
+    assertEquals(31, replay.getCoins(LERA));
+    assertEquals(29, replay.getCoins(VLAD));
+
+    BoardState board = replay.board();
+    assertEquals("red", board.getTopColor(3, 2));
+    assertEquals("blue", board.getTopColor(4, 2));
+    assertEquals("blue", board.getTopColor(5, 2));
+  }
+
+  @Test
+  void eliminationRevealsLowerLayers() {
+    GameReplay replay = replay(OPENING);
+    replay.apply(new GameEvent.PlayerEliminated(VLAD));
+
+    assertTrue(replay.isEliminated(VLAD));
+    assertEquals(0, replay.getCoins(VLAD));
+    BoardState board = replay.board();
+    assertEquals("red", board.getTopColor(4, 2));
+    assertTrue(board.isEmpty(5, 2));
+  }
+
+  @Test
+  void replayFromSnapshotMatchesFullReplay() {
+    List<GameEvent> tail = List.of(
+        new GameEvent.TurnSwitched(LERA, 3),
+        new GameEvent.PlayerEliminated(VLAD),
+        new GameEvent.GameFinished("lera"));
+
+    GameReplay full = replay(OPENING);
+    tail.forEach(full::apply);
+
+    GameReplay resumed = GameReplay.fromSnapshot(replay(OPENING).snapshot(OPENING.size()));
+    tail.forEach(resumed::apply);
+
+    assertEquals(full.snapshot(12), resumed.snapshot(12));
+    assertEquals("finished", resumed.getStatus());
+    assertEquals("lera", resumed.getWinnerUsername());
+    assertEquals(0L, full.board().diff(resumed.board()));
+  }
+
+  @Test
+  void journalWithoutStartIsNotStarted() {
+    assertFalse(replay(List.of(new GameEvent.DiceRolled(3))).isStarted());
+  }
+
+  @Test
+  void eventTypesResolveByName() {
+    for (GameEvent event : OPENING) {
+      assertEquals(event.getClass(), GameEvent.typeOf(event.type()));
+    }
+    assertThrows(IllegalArgumentException.class, () -> GameEvent.typeOf("Unknown"));
+  }
+
+  private static GameReplay replay(List<GameEvent> events) {
+    GameReplay replay = new GameReplay();
+    events.forEach(replay::apply);
+    return replay;
+  }
+}
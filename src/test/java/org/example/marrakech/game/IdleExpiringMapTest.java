@@ -0,0 +1,60 @@
+package org.example.marrakech.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdleExpiringMapTest {
+
+  private static final long IDLE = 100;
+
+  private final AtomicLong clock = new AtomicLong();
+  private final IdleExpiringMap<String> map = new IdleExpiringMap<>(IDLE, clock::get);
+
+  @Test
+  void computeIfAbsent_loadsOnce() {
+    AtomicInteger loads = new AtomicInteger();
+
+    assertEquals("7", map.computeIfAbsent(7L, id -> String.valueOf(id + loads.getAndIncrement())));
+    assertEquals("7", map.computeIfAbsent(7L, id -> "другое"));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void idleEntriesAreRemovedOnLaterAccess() {
+    map.put(1L, "брошенная");
+    map.put(2L, "идущая");
+
+    for (int step = 0; step < 5; step++) {
+      clock.addAndGet(IDLE / 2);
+      map.get(2L);
+    }
+
+    assertNull(map.get(1L));
+    assertEquals("идущая", map.get(2L));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  void accessKeepsEntryAlive() {
+    map.put(1L, "игра");
+    clock.addAndGet(IDLE - 1);
+    assertEquals("игра", map.get(1L));
+
+    clock.addAndGet(IDLE - 1);
+
+    assertEquals("игра", map.get(1L));
+  }
+
+  @Test
+  void removedEntryIsLoadedAgain() {
+    map.put(1L, "старое");
+
+    map.remove(1L);
+
+    assertEquals("новое", map.computeIfAbsent(1L, id -> "новое"));
+  }
+}
@@ -0,0 +1,142 @@
+package org.example.marrakech.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayVerifierTest {
+
+  private static final long SEED = 2024L;
+  private static final long LERA = 10L;
+  private static final long VLAD = 20L;
+
+  @Test
+  void gamePlayedByRulesIsConsistent() {
+    List<GameEvent> events = playedGame();
+
+    ReplayVerifier.Result result = ReplayVerifier.verify(events);
+
+    assertTrue(result.consistent(), () -> String.join("\n", result.mismatches()));
+    assertEquals(9, result.replay().getCurrentMoveNumber());
+  }
+
+  @Test
+  void tamperedDiceRollIsReported() {
+    List<GameEvent> events = new ArrayList<>(playedGame());
+    GameEvent.DiceRolled rolled = (GameEvent.DiceRolled) events.get(1);
+    events.set(1, new GameEvent.DiceRolled(rolled.value() % 4 + 1));
+
+    ReplayVerifier.Result result = ReplayVerifier.verify(events);
+
+    assertFalse(result.consistent());
+    assertTrue(result.mismatches().getFirst().startsWith("#2: на ходу 1 выпало"));
+  }
+
+  @Test
+  void carpetAwayFromAssamIsReported() {
+    List<GameEvent> events = new ArrayList<>(playedGame());
+    int index = indexOf(events, GameEvent.CarpetPlaced.class);
+    GameEvent.CarpetPlaced placed = (GameEvent.CarpetPlaced) events.get(index);
+    GameReplay before = replay(events.subList(0, index));
+    int farX = before.getAssamPositionX() < 3 ? 6 : 0;
+    events.set(index, new GameEvent.CarpetPlaced(placed.carpetId(), placed.ownerId(), placed.color(),
+        farX, 0, farX, 1, placed.placementTurn()));
+
+    ReplayVerifier.Result result = ReplayVerifier.verify(events);
+
+    assertFalse(result.consistent());
+    assertTrue(result.mismatches().getFirst().contains("Ассам"), result.mismatches().getFirst());
+  }
+
+  @Test
+  void turnOutOfOrderIsReported() {
+    List<GameEvent> events = new ArrayList<>(playedGame());
+    int index = indexOf(events, GameEvent.TurnSwitched.class);
+    events.set(index, new GameEvent.TurnSwitched(LERA, 2));
+
+    assertFalse(ReplayVerifier.verify(events).consistent());
+  }
+
+  @Test
+  void journalWithoutStartIsReported() {
+    List<GameEvent> events = playedGame();
+
+    ReplayVerifier.Result result = ReplayVerifier.verify(events.subList(1, events.size()));
+
+    assertEquals(1, result.mismatches().size());
+    assertTrue(result.mismatches().getFirst().startsWith("#1: журнал начинается не со старта игры"));
+    assertFalse(result.replay().isStarted());
+  }
+
+  /**
+   * Партия из восьми ходов, сыгранная так же, как ее проводит сервер: бросок по зерну, ход Ассама
+   * по таблице, оплата за чужой ковер, первый допустимый ковер рядом с Ассамом и передача хода
+   */
+  private static List<GameEvent> playedGame() {
+    List<GameEvent> events = new ArrayList<>();
+    events.add(new GameEvent.GameStarted(List.of(
+        new GameEvent.Seat(LERA, "lera", "red", 0, 30),
+        new GameEvent.Seat(VLAD, "vlad", "blue", 1, 30)), LERA, SEED));
+    long carpetId = 0;
+    for (int move = 1; move <= 8; move++) {
+      GameReplay replay = replay(events);
+      long player = replay.getCurrentTurnUserId();
+      long opponent = player == LERA ? VLAD : LERA;
+
+      int roll = Dice.roll(SEED, move);
+      Direction direction = Direction.fromName(replay.getAssamDirection());
+      int state = AssamMovementTable.move(replay.getAssamPositionX(), replay.getAssamPositionY(), direction, roll);
+      int x = AssamMovementTable.x(state);
+      int y = AssamMovementTable.y(state);
+      events.add(new GameEvent.DiceRolled(roll));
+      events.add(new GameEvent.AssamMoved(direction.getName(), x, y, AssamMovementTable.direction(state).getName()));
+
+      BoardState board = replay.board();
+      if (!board.isEmpty(x, y) && board.getTopOwnerId(x, y) != player) {
+        events.add(new GameEvent.PaymentMade(player, opponent, board.getRegionSize(x, y)));
+      }
+      events.add(firstLegalCarpet(board, ++carpetId, player, x, y, move));
+      events.add(new GameEvent.TurnSwitched(opponent, move + 1));
+    }
+    return events;
+  }
+
+  private static GameEvent.CarpetPlaced firstLegalCarpet(BoardState board, long carpetId, long ownerId,
+                                                         int assamX, int assamY, int move) {
+    String color = ownerId == LERA ? "red" : "blue";
+    for (Direction first : Direction.values()) {
+      for (Direction second : Direction.values()) {
+        int fx = assamX + first.getDx();
+        int fy = assamY + first.getDy();
+        int sx = fx + second.getDx();
+        int sy = fy + second.getDy();
+        try {
+          CarpetRules.checkNextToAssam(assamX, assamY, fx, fy, sx, sy);
+          CarpetRules.checkPlacement(board, ownerId, fx, fy, sx, sy);
+          return new GameEvent.CarpetPlaced(carpetId, ownerId, color, fx, fy, sx, sy, move);
+        } catch (IllegalArgumentException e) {
+          // следующий вариант
+        }
+      }
+    }
+    throw new IllegalStateException("Нет допустимого ковра рядом с Ассамом");
+  }
+
+  private static int indexOf(List<GameEvent> events, Class<? extends GameEvent> type) {
+    for (int i = 0; i < events.size(); i++) {
+      if (type.isInstance(events.get(i))) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException(type.getSimpleName());
+  }
+
+  private static GameReplay replay(List<GameEvent> events) {
+    GameReplay replay = new GameReplay();
+    events.forEach(replay::apply);
+    return replay;
+  }
+}
@@ -0,0 +1,149 @@
+package org.example.marrakech.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitingGameQueueTest {
+
+  @Test
+  void reserve_fillsFirstGameBeforeNext() {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    queue.add(1L, 1);
+    queue.add(2L, 0);
+
+    assertEquals(new WaitingGameQueue.Seat(1L, 1), queue.reserve());
+    assertEquals(new WaitingGameQueue.Seat(1L, 2), queue.reserve());
+    assertEquals(new WaitingGameQueue.Seat(1L, 3), queue.reserve());
+    assertEquals(new WaitingGameQueue.Seat(2L, 0), queue.reserve());
+  }
+
+  @Test
+  void reserve_emptyQueue() {
+    assertNull(new WaitingGameQueue(4).reserve());
+  }
+
+  @Test
+  void release_returnsFullGameToQueue() {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    queue.add(1L, 3);
+    assertEquals(new WaitingGameQueue.Seat(1L, 3), queue.reserve());
+    assertNull(queue.reserve());
+
+    queue.release(1L, 3);
+
+    assertEquals(new WaitingGameQueue.Seat(1L, 3), queue.reserve());
+  }
+
+  @Test
+  void release_freedSeatIsReservedAgainWithoutDuplicates() {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    queue.add(1L, 1);
+    assertEquals(new WaitingGameQueue.Seat(1L, 1), queue.reserve());
+    assertEquals(new WaitingGameQueue.Seat(1L, 2), queue.reserve());
+
+    queue.release(1L, 1);
+
+    // Места 0 и 2 заняты: следующий вошедший получает освободившееся место, а не место соседа
+    assertEquals(new WaitingGameQueue.Seat(1L, 1), queue.reserve());
+    assertEquals(new WaitingGameQueue.Seat(1L, 3), queue.reserve());
+    assertNull(queue.reserve());
+  }
+
+  @Test
+  void join_lastCommittedSeatClosesTableOnce() {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    queue.add(1L, 1);
+    WaitingGameQueue.Seat first = queue.reserve();
+    WaitingGameQueue.Seat second = queue.reserve();
+    WaitingGameQueue.Seat third = queue.reserve();
+
+    // Последнее место заняли раньше, чем зафиксировался вход на второе: стол ждет оба входа
+    assertFalse(queue.join(third));
+    assertFalse(queue.join(first));
+    assertTrue(queue.join(second));
+    assertFalse(queue.join(second));
+    assertEquals(0, queue.freeSeats());
+  }
+
+  @Test
+  void reopen_tableWithLeftPlayerIsOfferedAgain() {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    assertTrue(queue.restore(1L, 0b1111));
+    assertNull(queue.reserve());
+
+    queue.release(1L, 2);
+    assertNull(queue.reserve());
+    queue.reopen(1L);
+
+    assertEquals(new WaitingGameQueue.Seat(1L, 2), queue.reserve());
+  }
+
+  @Test
+  void restore_occupiedSeatsAreSkipped() {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    assertFalse(queue.restore(1L, 0b1010));
+
+    assertEquals(new WaitingGameQueue.Seat(1L, 0), queue.reserve());
+    assertEquals(new WaitingGameQueue.Seat(1L, 2), queue.reserve());
+    assertNull(queue.reserve());
+  }
+
+  @Test
+  void remove_startedGameIsNotOffered() {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    queue.add(1L, 2);
+
+    queue.remove(1L);
+
+    assertNull(queue.reserve());
+  }
+
+  @Test
+  void freeSeats_countsOpenSeatsOfWaitingGames() {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    queue.add(1L, 1);
+    queue.add(2L, 3);
+    assertEquals(4, queue.freeSeats());
+
+    queue.reserve();
+    queue.remove(2L);
+
+    assertEquals(2, queue.freeSeats());
+  }
+
+  @Test
+  void reserve_concurrentJoinsNeverOverfill() throws Exception {
+    WaitingGameQueue queue = new WaitingGameQueue(4);
+    for (long gameId = 1; gameId <= 50; gameId++) {
+      queue.add(gameId, 0);
+    }
+    Map<Long, AtomicInteger> seatsByGame = new ConcurrentHashMap<>();
+    AtomicInteger rejected = new AtomicInteger();
+
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 250; i++) {
+      pool.execute(() -> {
+        WaitingGameQueue.Seat seat = queue.reserve();
+        if (seat == null) {
+          rejected.incrementAndGet();
+        } else {
+          seatsByGame.computeIfAbsent(seat.gameId(), id -> new AtomicInteger()).incrementAndGet();
+        }
+      });
+    }
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(50, seatsByGame.size());
+    seatsByGame.values().forEach(seats -> assertEquals(4, seats.get()));
+    assertEquals(50, rejected.get());
+  }
+}
@@ -0,0 +1,68 @@
+package org.example.marrakech.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.marrakech.service.GameJournal;
+import org.example.marrakech.service.GameStateWriter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка бюджета запросов на основе статистики Hibernate: операция выполняет
+ * не больше заданного числа SQL-запросов и загружает не больше заданного числа сущностей.
+ * Пакетные запросы {@link GameStateWriter} и {@link GameJournal} идут через JdbcTemplate мимо статистики
+ * Hibernate, поэтому добавляются к числу запросов по их собственным счетчикам
+ */
+public final class QueryBudget {
+
+  private final Statistics statistics;
+  private final GameStateWriter gameStateWriter;
+  private final GameJournal gameJournal;
+
+  public QueryBudget(EntityManagerFactory entityManagerFactory, GameStateWriter gameStateWriter,
+                     GameJournal gameJournal) {
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.statistics.setStatisticsEnabled(true);
+    this.gameStateWriter = gameStateWriter;
+    this.gameJournal = gameJournal;
+  }
+
+  /**
+   * Выполняет операцию и проверяет ее бюджет
+   *
+   * @param operation      название операции для сообщения об ошибке
+   * @param maxStatements  допустимое число подготовленных SQL-запросов
+   * @param maxEntityLoads допустимое число сущностей, загруженных из базы
+   * @param action         операция
+   * @return результат операции
+   */
+  public <T> T measure(String operation, long maxStatements, long maxEntityLoads, Supplier<T> action) {
+    statistics.clear();
+    long batchesBefore = jdbcBatches();
+    T result = action.get();
+    long statements = statistics.getPrepareStatementCount() + jdbcBatches() - batchesBefore;
+    long entityLoads = statistics.getEntityLoadCount();
+    assertTrue(statements <= maxStatements,
+        operation + ": выполнено " + statements + " запросов, допустимо " + maxStatements);
+    assertTrue(entityLoads <= maxEntityLoads,
+        operation + ": загружено " + entityLoads + " сущностей, допустимо " + maxEntityLoads);
+    return result;
+  }
+
+  private long jdbcBatches() {
+    return gameStateWriter.getBatchStatementCount() + gameJournal.getBatchStatementCount();
+  }
+
+  /**
+   * То же для операций без результата
+   */
+  public void run(String operation, long maxStatements, long maxEntityLoads, Runnable action) {
+    measure(operation, maxStatements, maxEntityLoads, () -> {
+      action.run();
+      return null;
+    });
+  }
+}
@@ -0,0 +1,100 @@
+package org.example.marrakech.integration.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.marrakech.controller.GameLobbyController;
+import org.example.marrakech.controller.TurnController;
+import org.example.marrakech.dto.JoinGameResponse;
+import org.example.marrakech.dto.MoveResponse;
+import org.example.marrakech.dto.TurnResultResponse;
+import org.example.marrakech.entity.User;
+import org.example.marrakech.integration.QueryBudget;
+import org.example.marrakech.repository.UserRepository;
+import org.example.marrakech.service.GameJournal;
+import org.example.marrakech.service.GameStateWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ответы игровых эндпоинтов – плоские DTO без сущностей, и каждый эндпоинт выполняет
+ * ограниченное число SQL-запросов
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ResponseQueryCountTest {
+
+  private static final long MAX_JOIN_QUERIES = 17;
+  private static final long MAX_MOVE_QUERIES = 10;
+  private static final long MAX_SWITCH_QUERIES = 18;
+
+  @Autowired
+  private GameLobbyController gameLobbyController;
+
+  @Autowired
+  private TurnController turnController;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private GameStateWriter gameStateWriter;
+
+  @Autowired
+  private GameJournal gameJournal;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  private QueryBudget queryBudget;
+
+  @BeforeEach
+  void enableStatistics() {
+    queryBudget = new QueryBudget(entityManagerFactory, gameStateWriter, gameJournal);
+  }
+
+  @Test
+  void gameEndpointsReturnFlatResponsesWithBoundedQueries() throws Exception {
+    List<String> usernames = List.of("qc_lera", "qc_vlad", "qc_sasha", "qc_nika");
+    usernames.forEach(username -> userRepository.save(new User(username, "hash")));
+
+    JoinGameResponse joined = null;
+    for (String username : usernames) {
+      ResponseEntity<?> response = withQueryLimit(MAX_JOIN_QUERIES, () -> gameLobbyController.joinGame(username));
+      joined = assertInstanceOf(JoinGameResponse.class, response.getBody());
+      assertNoPasswordHash(joined);
+    }
+    assertEquals("in_progress", joined.getStatus());
+    assertEquals(3, joined.getSeat());
+    Long gameId = joined.getGameId();
+
+    ResponseEntity<?> move = withQueryLimit(MAX_MOVE_QUERIES, () -> turnController.completeMove(gameId, "up"));
+    MoveResponse moved = assertInstanceOf(MoveResponse.class, move.getBody());
+    assertEquals("qc_lera", moved.getCurrentTurnUsername());
+    assertNoPasswordHash(moved);
+
+    ResponseEntity<TurnResultResponse> switched =
+        withQueryLimit(MAX_SWITCH_QUERIES, () -> turnController.switchTurn(gameId));
+    assertEquals("qc_vlad", switched.getBody().getCurrentTurnUsername());
+    assertNoPasswordHash(switched.getBody());
+  }
+
+  private <T> T withQueryLimit(long maxQueries, Supplier<T> endpoint) {
+    return queryBudget.measure("endpoint", maxQueries, Long.MAX_VALUE, endpoint);
+  }
+
+  private void assertNoPasswordHash(Object response) throws Exception {
+    assertFalse(objectMapper.writeValueAsString(response).contains("passwordHash"));
+  }
+}
@@ -0,0 +1,124 @@
+package org.example.marrakech.integration.performance;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.marrakech.dto.JoinGameResponse;
+import org.example.marrakech.dto.MoveResponse;
+import org.example.marrakech.dto.TurnResultResponse;
+import org.example.marrakech.entity.Carpet;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.entity.User;
+import org.example.marrakech.integration.QueryBudget;
+import org.example.marrakech.repository.CarpetRepository;
+import org.example.marrakech.repository.GameRepository;
+import org.example.marrakech.repository.UserRepository;
+import org.example.marrakech.service.CarpetService;
+import org.example.marrakech.service.GameCompletionService;
+import org.example.marrakech.service.GameJournal;
+import org.example.marrakech.service.GameLobbyService;
+import org.example.marrakech.service.GameStateWriter;
+import org.example.marrakech.service.TurnService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бюджет SQL-запросов и загрузок сущностей для основных операций игры на встроенной базе.
+ * Цикл запросов по игрокам или клеткам (N+1) выводит операцию за бюджет и роняет тест.
+ * В бюджет входят пакетные записи: состояние игры и журнал на ходе и смене хода, журнал на ковре и старте игры
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class QueryCountRegressionTest {
+
+  private static final long MAX_JOIN_STATEMENTS = 15;
+  private static final long MAX_JOIN_ENTITY_LOADS = 12;
+  private static final long MAX_MOVE_STATEMENTS = 8;
+  private static final long MAX_MOVE_ENTITY_LOADS = 4;
+  private static final long MAX_PLACE_STATEMENTS = 9;
+  private static final long MAX_PLACE_ENTITY_LOADS = 6;
+  private static final long MAX_SWITCH_STATEMENTS = 14;
+  private static final long MAX_SWITCH_ENTITY_LOADS = 10;
+  private static final long MAX_COMPLETION_STATEMENTS = 6;
+  private static final long MAX_COMPLETION_ENTITY_LOADS = 9;
+
+  @Autowired
+  private GameLobbyService gameLobbyService;
+
+  @Autowired
+  private TurnService turnService;
+
+  @Autowired
+  private CarpetService carpetService;
+
+  @Autowired
+  private GameCompletionService gameCompletionService;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private GameRepository gameRepository;
+
+  @Autowired
+  private CarpetRepository carpetRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private GameStateWriter gameStateWriter;
+
+  @Autowired
+  private GameJournal gameJournal;
+
+  private QueryBudget queryBudget;
+
+  @BeforeEach
+  void enableStatistics() {
+    queryBudget = new QueryBudget(entityManagerFactory, gameStateWriter, gameJournal);
+  }
+
+  @Test
+  void mainGameFlowStaysWithinQueryBudget() {
+    List<User> users = List.of("perf_ilya", "perf_mila", "perf_gosha", "perf_tanya").stream()
+        .map(username -> userRepository.save(new User(username, "hash")))
+        .toList();
+
+    JoinGameResponse joined = null;
+    for (User user : users) {
+      joined = queryBudget.measure("joinGame", MAX_JOIN_STATEMENTS, MAX_JOIN_ENTITY_LOADS,
+          () -> gameLobbyService.joinGame(user));
+    }
+    assertEquals("in_progress", joined.getStatus());
+    Long gameId = joined.getGameId();
+
+    MoveResponse moved = queryBudget.measure("completeMove", MAX_MOVE_STATEMENTS, MAX_MOVE_ENTITY_LOADS,
+        () -> turnService.completeMove(gameId, "up"));
+    assertEquals("perf_ilya", moved.getCurrentTurnUsername());
+
+    // Поле пустое, поэтому подходят любые две клетки подряд от Ассама вдоль оси x
+    Game game = gameRepository.findWithCurrentTurnById(gameId).orElseThrow();
+    Carpet carpet = carpetRepository.findByGameAndOwner(game, users.getFirst()).orElseThrow();
+    int assamX = moved.getAssamPositionX();
+    int assamY = moved.getAssamPositionY();
+    int step = assamX <= 4 ? 1 : -1;
+    queryBudget.run("placeCarpetAfterMove", MAX_PLACE_STATEMENTS, MAX_PLACE_ENTITY_LOADS,
+        () -> carpetService.placeCarpetAfterMove(carpet, assamX, assamY,
+            assamX + step, assamY, assamX + 2 * step, assamY));
+
+    TurnResultResponse switched = queryBudget.measure("switchTurn", MAX_SWITCH_STATEMENTS, MAX_SWITCH_ENTITY_LOADS,
+        () -> turnService.switchTurn(gameId));
+    assertEquals("perf_mila", switched.getCurrentTurnUsername());
+
+    Game afterSwitch = gameRepository.findWithCurrentTurnById(gameId).orElseThrow();
+    queryBudget.run("checkGameCompletion", MAX_COMPLETION_STATEMENTS, MAX_COMPLETION_ENTITY_LOADS,
+        () -> gameCompletionService.checkGameCompletion(afterSwitch));
+    assertEquals("in_progress", gameRepository.findById(gameId).orElseThrow().getStatus());
+  }
+}
@@ -0,0 +1,41 @@
+package org.example.marrakech.jfr;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRecorderTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void deleteOldest_keepsLatestRecordingsOnly() throws Exception {
+    for (String name : List.of("marrakech-20260101-120000.jfr", "marrakech-20260102-090000.jfr",
+        "marrakech-20260101-080000.jfr", "marrakech-20260103-100000.jfr", "notes.txt")) {
+      Files.createFile(directory.resolve(name));
+    }
+
+    GameRecorder.deleteOldest(directory, 2);
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(List.of("marrakech-20260102-090000.jfr", "marrakech-20260103-100000.jfr", "notes.txt"),
+          files.map(path -> path.getFileName().toString()).sorted().toList());
+    }
+  }
+
+  @Test
+  void deleteOldest_fewerFilesThanLimitAreKept() throws Exception {
+    Files.createFile(directory.resolve("marrakech-20260101-120000.jfr"));
+
+    GameRecorder.deleteOldest(directory, GameRecorder.MAX_RECORDINGS - 1);
+
+    assertTrue(Files.exists(directory.resolve("marrakech-20260101-120000.jfr")));
+  }
+}
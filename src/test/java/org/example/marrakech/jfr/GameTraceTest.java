@@ -0,0 +1,70 @@
+package org.example.marrakech.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.marrakech.entity.Game;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameTraceTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void phasesWithoutGameInheritCommandGameAndMoveNumber() throws Exception {
+    Game game = new Game();
+    game.setId(7L);
+    game.setCurrentMoveNumber(5);
+
+    Path file = directory.resolve("trace.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(GameCommandEvent.class).withThreshold(Duration.ZERO);
+      recording.enable(TurnPhaseEvent.class).withThreshold(Duration.ZERO);
+      recording.start();
+
+      GameTrace.command(7L, () -> {
+        GameTrace.phase(TurnPhaseEvent.MOVEMENT, game).commit();
+        GameTrace.phase(TurnPhaseEvent.DB, "findWithCurrentTurnById").commit();
+        return null;
+      });
+
+      recording.stop();
+      recording.dump(file);
+    }
+    assertFalse(GameTrace.inCommand());
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    RecordedEvent command = single(events, "org.example.marrakech.GameCommand", null);
+    assertEquals(7L, command.getLong("gameId"));
+    assertEquals(5, command.getInt("moveNumber"));
+
+    RecordedEvent db = single(events, "org.example.marrakech.TurnPhase", TurnPhaseEvent.DB);
+    assertEquals(7L, db.getLong("gameId"));
+    assertEquals(5, db.getInt("moveNumber"));
+    assertEquals("findWithCurrentTurnById", db.getString("detail"));
+  }
+
+  @Test
+  void phaseOutsideCommandIsNotTaggedWithGame() {
+    assertEquals(0, GameTrace.currentMoveNumber());
+    TurnPhaseEvent event = GameTrace.phase(TurnPhaseEvent.DB, "findAll");
+    assertEquals(0L, event.gameId);
+  }
+
+  private static RecordedEvent single(List<RecordedEvent> events, String type, String phase) {
+    List<RecordedEvent> matching = events.stream()
+        .filter(event -> event.getEventType().getName().equals(type))
+        .filter(event -> phase == null || phase.equals(event.getString("phase")))
+        .toList();
+    assertEquals(1, matching.size());
+    return matching.getFirst();
+  }
+}
@@ -0,0 +1,51 @@
+package org.example.marrakech.service;
+
+import org.example.marrakech.dto.JoinGameResponse;
+import org.example.marrakech.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BatchMatchmakerTest {
+
+  @Test
+  void incompleteTableJoinsOnCallerThread() {
+    GameLobbyService gameLobbyService = mock(GameLobbyService.class);
+    User user = user(1L);
+    JoinGameResponse response = new JoinGameResponse();
+    AtomicReference<Thread> joinedOn = new AtomicReference<>();
+    when(gameLobbyService.joinGame(user)).thenAnswer(invocation -> {
+      joinedOn.set(Thread.currentThread());
+      return response;
+    });
+    BatchMatchmaker matchmaker = new BatchMatchmaker(gameLobbyService);
+
+    assertSame(response, matchmaker.join(user));
+    assertSame(Thread.currentThread(), joinedOn.get());
+    matchmaker.shutdown();
+  }
+
+  @Test
+  void failedWindowCompletesItsJoinsAndLaterWindowsStillRun() {
+    GameLobbyService gameLobbyService = mock(GameLobbyService.class);
+    User broken = mock(User.class);
+    when(broken.getId()).thenThrow(new AssertionError("сбой окна"));
+    User user = user(2L);
+    JoinGameResponse response = new JoinGameResponse();
+    when(gameLobbyService.joinGame(user)).thenReturn(response);
+    BatchMatchmaker matchmaker = new BatchMatchmaker(gameLobbyService);
+
+    assertThrows(IllegalStateException.class, () -> matchmaker.join(broken));
+    assertSame(response, matchmaker.join(user));
+    matchmaker.shutdown();
+  }
+
+  private static User user(Long id) {
+    User user = new User("player" + id, "hash");
+    user.setId(id);
+    return user;
+  }
+}
@@ -0,0 +1,81 @@
+package org.example.marrakech.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameCommandExecutorTest {
+
+  @Test
+  void commandsOfOneGameRunInSubmissionOrder() {
+    GameCommandExecutor executor = new GameCommandExecutor(4);
+    List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+    for (int i = 0; i < 200; i++) {
+      int command = i;
+      futures.add(executor.submit(1L, () -> {
+        executed.add(command);
+        return command;
+      }));
+    }
+    futures.forEach(CompletableFuture::join);
+
+    assertEquals(IntStream.range(0, 200).boxed().toList(), executed);
+    executor.shutdown();
+  }
+
+  @Test
+  void differentGamesRunInParallel() throws Exception {
+    GameCommandExecutor executor = new GameCommandExecutor(2);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+
+    CompletableFuture<Boolean> first = executor.submit(1L, () -> awaitQuietly(bothStarted));
+    CompletableFuture<Boolean> second = executor.submit(2L, () -> awaitQuietly(bothStarted));
+
+    assertTrue(first.get(5, TimeUnit.SECONDS));
+    assertTrue(second.get(5, TimeUnit.SECONDS));
+    executor.shutdown();
+  }
+
+  @Test
+  void execute_rethrowsCommandException() {
+    GameCommandExecutor executor = new GameCommandExecutor(1);
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> executor.execute(1L, () -> {
+          throw new IllegalArgumentException("Нельзя повернуться на 180 градусов");
+        }));
+
+    assertEquals("Нельзя повернуться на 180 градусов", e.getMessage());
+    executor.shutdown();
+  }
+
+  @Test
+  void execute_nestedCommandOfSameGameRunsInline() {
+    GameCommandExecutor executor = new GameCommandExecutor(1);
+
+    int result = executor.execute(1L, () -> executor.execute(1L, () -> 42));
+
+    assertEquals(42, result);
+    executor.shutdown();
+  }
+
+  private static boolean awaitQuietly(CountDownLatch latch) {
+    latch.countDown();
+    try {
+      return latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package org.example.marrakech.service;
+
+import org.example.marrakech.dto.GameDelta;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.websocket.GameBroadcaster;
+import org.example.marrakech.websocket.GameDeltaCodec;
+import org.example.marrakech.websocket.PlayerSlots;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GameDeltaPublisherTest {
+
+  @Mock
+  private GameBroadcaster gameBroadcaster;
+
+  @Mock
+  private PlayerSlots playerSlots;
+
+  @AfterEach
+  void clearTransaction() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+  }
+
+  @Test
+  void changesOfOneTransactionAreSentAsSingleDeltaAfterCommit() {
+    GameDeltaPublisher publisher = new GameDeltaPublisher(gameBroadcaster, playerSlots);
+    Game game = game(7L, 3L);
+
+    beginTransaction();
+    publisher.update(game, delta -> delta.setDiceRoll(4));
+    publisher.update(game, delta -> delta.addEliminated("lera"));
+    publisher.update(game, delta -> delta.setCurrentTurnUsername("vlad"));
+    verifyNoInteractions(gameBroadcaster);
+
+    assertEquals(1, synchronizations().size());
+    game.setVersion(4L);
+    beforeCommit();
+    afterCommit();
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+
+    ArgumentCaptor<GameDelta> sent = ArgumentCaptor.forClass(GameDelta.class);
+    verify(gameBroadcaster, times(1)).broadcast(eq(7L), eq("/topic/game/7/delta"), sent.capture());
+    GameDelta delta = sent.getValue();
+    assertEquals(4L, delta.getVersion());
+    assertEquals(4, delta.getDiceRoll());
+    assertEquals(List.of("lera"), delta.getEliminatedUsernames());
+    assertEquals("vlad", delta.getCurrentTurnUsername());
+    assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+  }
+
+  @Test
+  void nothingIsSentOnRollback() {
+    GameDeltaPublisher publisher = new GameDeltaPublisher(gameBroadcaster, playerSlots);
+
+    beginTransaction();
+    publisher.update(game(7L, 3L), delta -> delta.setDiceRoll(2));
+    complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+    verify(gameBroadcaster, never()).broadcast(any(), any(), any());
+    assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+  }
+
+  @Test
+  void changeOutsideTransactionIsSentImmediately() {
+    GameDeltaPublisher publisher = new GameDeltaPublisher(gameBroadcaster, playerSlots);
+
+    publisher.update(game(7L, 3L), delta -> delta.setLeftUsername("lera"));
+
+    verify(gameBroadcaster).broadcast(eq(7L), eq("/topic/game/7/delta"), any(GameDelta.class));
+    assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+  }
+
+  @Test
+  void binaryDeltaIsEncodedWithCachedSlotsOnlyForSubscribedTopic() {
+    GameDeltaPublisher publisher = new GameDeltaPublisher(gameBroadcaster, playerSlots);
+    Game game = game(7L, 3L);
+
+    publisher.update(game, delta -> delta.setLeftUsername("lera"));
+    verify(gameBroadcaster, never()).broadcast(any(), eq("/topic/game/7/delta.bin"), any(), any());
+    verifyNoInteractions(playerSlots);
+
+    when(gameBroadcaster.hasSubscribers("/topic/game/7/delta.bin")).thenReturn(true);
+    when(playerSlots.slots(7L)).thenReturn(Map.of("vlad", 2));
+    publisher.update(game, delta -> delta.setCurrentTurnUsername("vlad"));
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Supplier<byte[]>> body = ArgumentCaptor.forClass(Supplier.class);
+    verify(gameBroadcaster).broadcast(eq(7L), eq("/topic/game/7/delta.bin"), body.capture(),
+        eq(GameDeltaCodec.MIME_TYPE));
+    // Игрок закодирован номером места, а не именем
+    GameDelta decoded = GameDeltaCodec.decode(body.getValue().get(), slot -> "seat-" + slot);
+    assertEquals("seat-2", decoded.getCurrentTurnUsername());
+    verify(playerSlots, times(1)).slots(7L);
+  }
+
+  @Test
+  void sentDeltasAreNumberedAndKeptForResync() {
+    GameDeltaPublisher publisher = new GameDeltaPublisher(gameBroadcaster, playerSlots);
+    Game game = game(7L, 3L);
+
+    publisher.update(game, delta -> delta.setDiceRoll(1));
+    publisher.update(game, delta -> delta.setDiceRoll(2));
+    publisher.update(game, delta -> delta.setDiceRoll(3));
+
+    long epoch = publisher.position(7L).epoch();
+    assertEquals(3L, publisher.position(7L).sequence());
+    List<GameDelta> missing = publisher.deltasSince(7L, epoch, 1);
+    assertEquals(2, missing.size());
+    assertEquals(2L, missing.get(0).getSequence());
+    assertEquals(epoch, missing.get(0).getEpoch());
+    assertEquals(3, missing.get(1).getDiceRoll());
+    assertNull(publisher.deltasSince(8L, epoch, 0));
+  }
+
+  @Test
+  void sequenceFromBeforeRestartRequiresSnapshot() {
+    Game game = game(7L, 3L);
+    GameDeltaPublisher beforeRestart = new GameDeltaPublisher(gameBroadcaster, playerSlots);
+    beforeRestart.update(game, delta -> delta.setDiceRoll(1));
+    beforeRestart.update(game, delta -> delta.setDiceRoll(2));
+    long oldEpoch = beforeRestart.position(7L).epoch();
+
+    GameDeltaPublisher restarted = new GameDeltaPublisher(gameBroadcaster, playerSlots);
+    for (int roll = 1; roll <= 5; roll++) {
+      int value = roll;
+      restarted.update(game, delta -> delta.setDiceRoll(value));
+    }
+
+    // Номер 2 есть и в новой истории, но относится к другим изменениям
+    assertNotEquals(oldEpoch, restarted.position(7L).epoch());
+    assertNull(restarted.deltasSince(7L, oldEpoch, 2));
+    assertEquals(3, restarted.deltasSince(7L, restarted.position(7L).epoch(), 2).size());
+  }
+
+  /**
+   * Синхронизации транзакции, которые зарегистрировал компонент
+   */
+  private static List<TransactionSynchronization> synchronizations() {
+    return TransactionSynchronizationManager.getSynchronizations();
+  }
+
+  private static void beforeCommit() {
+    synchronizations().forEach(synchronization -> synchronization.beforeCommit(false));
+  }
+
+  private static void afterCommit() {
+    synchronizations().forEach(TransactionSynchronization::afterCommit);
+  }
+
+  private static void complete(int status) {
+    synchronizations().forEach(synchronization -> synchronization.afterCompletion(status));
+  }
+
+  private static void beginTransaction() {
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+  }
+
+  private static Game game(Long id, Long version) {
+    Game game = new Game();
+    game.setId(id);
+    game.setVersion(version);
+    return game;
+  }
+}
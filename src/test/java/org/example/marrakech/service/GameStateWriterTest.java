@@ -0,0 +1,204 @@
+package org.example.marrakech.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.marrakech.entity.Game;
+import org.example.marrakech.entity.GamePlayer;
+import org.example.marrakech.entity.GamePlayerId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GameStateWriterTest {
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private EntityManagerFactory entityManagerFactory;
+
+  @AfterEach
+  void clearTransaction() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+  }
+
+  @Test
+  void syncModeWritesLastValuesOfTransactionBeforeCommit() {
+    GameStateWriter writer = writer("sync");
+    Game game = game(7L);
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+    beginTransaction();
+    game.setAssamPositionX(4);
+    writer.record(game);
+    game.setAssamPositionX(5);
+    game.setCurrentMoveNumber(9);
+    writer.record(game);
+    GamePlayer player = player(7L, 2L, 12);
+    writer.record(player);
+    verifyNoInteractions(jdbcTemplate);
+
+    assertEquals(1, synchronizations().size());
+    beforeCommit();
+    afterCommit();
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+
+    assertArrayEquals(new Object[]{5, 3, "up", 9, 7L, 4L}, writtenRows(GameStateWriter.UPDATE_GAME).getFirst());
+    assertArrayEquals(new Object[]{12, 7L, 2L, 4L}, writtenRows(GameStateWriter.UPDATE_COINS).getFirst());
+    // Запись увеличила version строк, сущности получили ту же version
+    assertEquals(5L, game.getVersion());
+    assertEquals(5L, player.getVersion());
+    assertEquals(0, writer.getPendingCount());
+    assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+  }
+
+  @Test
+  void staleCoinsWriteIsRejected() {
+    GameStateWriter writer = writer("sync");
+    when(jdbcTemplate.batchUpdate(eq(GameStateWriter.UPDATE_COINS), anyList())).thenReturn(new int[]{1, 0});
+
+    beginTransaction();
+    writer.record(player(7L, 2L, 12));
+    writer.record(player(7L, 3L, 48));
+
+    ObjectOptimisticLockingFailureException conflict =
+        assertThrows(ObjectOptimisticLockingFailureException.class, GameStateWriterTest::beforeCommit);
+    assertEquals(GamePlayer.class.getName(), conflict.getPersistentClassName());
+    assertEquals(new GamePlayerId(7L, 3L), conflict.getIdentifier());
+    assertArrayEquals(new Object[]{48, 7L, 3L, 4L}, writtenRows(GameStateWriter.UPDATE_COINS).get(1));
+  }
+
+  @Test
+  void writeBehindKeepsCommittedChangesUntilFlush() {
+    GameStateWriter writer = writer("write-behind");
+
+    beginTransaction();
+    writer.record(game(7L));
+    writer.record(player(7L, 2L, 12));
+    beforeCommit();
+    afterCommit();
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+
+    verifyNoInteractions(jdbcTemplate);
+    assertEquals(2, writer.getPendingCount());
+
+    writer.flush();
+    assertEquals(1, writtenRows(GameStateWriter.FLUSH_GAME).size());
+    assertEquals(1, writtenRows(GameStateWriter.FLUSH_COINS).size());
+    verify(transactionManager).getTransaction(
+        argThat(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    verify(transactionManager).commit(any());
+    assertEquals(0, writer.getPendingCount());
+
+    writer.flush();
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+  }
+
+  @Test
+  void writeBehindDropsChangesOfRolledBackTransaction() {
+    GameStateWriter writer = writer("write-behind");
+
+    beginTransaction();
+    writer.record(game(7L));
+    complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+    assertEquals(0, writer.getPendingCount());
+    assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+  }
+
+  @Test
+  void finishedGameIsFlushedRightAfterCommit() {
+    GameStateWriter writer = writer("write-behind");
+
+    beginTransaction();
+    writer.record(game(7L));
+    writer.flushAfterCommit();
+    beforeCommit();
+    verifyNoInteractions(jdbcTemplate);
+    afterCommit();
+
+    assertEquals(1, writtenRows(GameStateWriter.FLUSH_GAME).size());
+    assertEquals(0, writer.getPendingCount());
+  }
+
+  @Test
+  void unknownDurabilityIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> writer("eventually"));
+    assertEquals(GameStateWriter.Durability.WRITE_BEHIND, GameStateWriter.parseDurability(" Write-Behind "));
+  }
+
+  private GameStateWriter writer(String durability) {
+    return new GameStateWriter(jdbcTemplate, transactionManager, entityManagerFactory, durability, 200);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Object[]> writtenRows(String sql) {
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(eq(sql), rows.capture());
+    return rows.getValue();
+  }
+
+  /**
+   * Синхронизации транзакции, которые зарегистрировал компонент
+   */
+  private static List<TransactionSynchronization> synchronizations() {
+    return TransactionSynchronizationManager.getSynchronizations();
+  }
+
+  private static void beforeCommit() {
+    synchronizations().forEach(synchronization -> synchronization.beforeCommit(false));
+  }
+
+  private static void afterCommit() {
+    synchronizations().forEach(TransactionSynchronization::afterCommit);
+  }
+
+  private static void complete(int status) {
+    synchronizations().forEach(synchronization -> synchronization.afterCompletion(status));
+  }
+
+  private static void beginTransaction() {
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+  }
+
+  private static Game game(Long id) {
+    Game game = new Game();
+    game.setId(id);
+    game.setVersion(4L);
+    return game;
+  }
+
+  private static GamePlayer player(Long gameId, Long userId, int coins) {
+    GamePlayer player = new GamePlayer();
+    player.setId(new GamePlayerId(gameId, userId));
+    player.setCoins(coins);
+    player.setVersion(4L);
+    return player;
+  }
+}
@@ -0,0 +1,50 @@
+package org.example.marrakech.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticLockRetryTest {
+
+  private final OptimisticLockRetry retry = new OptimisticLockRetry();
+
+  @Test
+  void execute_retriesAfterConflict() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    String result = retry.execute(() -> {
+      if (attempts.incrementAndGet() < OptimisticLockRetry.MAX_ATTEMPTS) {
+        throw new ObjectOptimisticLockingFailureException("games", 1L);
+      }
+      return "ok";
+    });
+
+    assertEquals("ok", result);
+    assertEquals(OptimisticLockRetry.MAX_ATTEMPTS, attempts.get());
+  }
+
+  @Test
+  void execute_givesUpAfterMaxAttempts() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> retry.execute(() -> {
+      attempts.incrementAndGet();
+      throw new ObjectOptimisticLockingFailureException("games", 1L);
+    }));
+    assertEquals(OptimisticLockRetry.MAX_ATTEMPTS, attempts.get());
+  }
+
+  @Test
+  void execute_doesNotRetryOtherExceptions() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(IllegalArgumentException.class, () -> retry.execute(() -> {
+      attempts.incrementAndGet();
+      throw new IllegalArgumentException("Игра не найдена");
+    }));
+    assertEquals(1, attempts.get());
+  }
+}
@@ -0,0 +1,114 @@
+package org.example.marrakech.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GameBroadcasterTest {
+
+  @Test
+  void messagesOfOneGameAreSentInOrderAsJsonBytes() {
+    SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    GameBroadcaster broadcaster = new GameBroadcaster(messagingTemplate, new ObjectMapper(), subscribed("/topic/game/7/delta"), 4, 1024);
+
+    for (int i = 0; i < 100; i++) {
+      broadcaster.broadcast(7L, "/topic/game/7/delta", Map.of("sequence", i));
+    }
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Message<byte[]>> sent = ArgumentCaptor.forClass(Message.class);
+    verify(messagingTemplate, timeout(5000).times(100)).send(eq("/topic/game/7/delta"), sent.capture());
+
+    List<String> bodies = sent.getAllValues().stream()
+        .map(message -> new String(message.getPayload(), StandardCharsets.UTF_8))
+        .toList();
+    assertEquals(IntStream.range(0, 100).mapToObj(i -> "{\"sequence\":" + i + "}").toList(), bodies);
+    assertEquals(MimeTypeUtils.APPLICATION_JSON,
+        SimpMessageHeaderAccessor.wrap(sent.getValue()).getContentType());
+    assertEquals(0L, broadcaster.getDroppedCount());
+    broadcaster.shutdown();
+  }
+
+  @Test
+  void gamesOnDifferentLanesDoNotBlockEachOther() {
+    SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    GameBroadcaster broadcaster = new GameBroadcaster(messagingTemplate, new ObjectMapper(),
+        subscribed("/topic/game/1/delta", "/topic/game/2/delta"), 2, 16);
+
+    broadcaster.broadcast(1L, "/topic/game/1/delta", Map.of("gameId", 1));
+    broadcaster.broadcast(2L, "/topic/game/2/delta", Map.of("gameId", 2));
+
+    verify(messagingTemplate, timeout(5000)).send(eq("/topic/game/1/delta"), any());
+    verify(messagingTemplate, timeout(5000)).send(eq("/topic/game/2/delta"), any());
+    broadcaster.shutdown();
+  }
+
+  @Test
+  void topicWithoutSubscribersIsNeitherEncodedNorSent() {
+    SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    TopicSubscriptions subscriptions = subscribed("/topic/game/7/delta");
+    GameBroadcaster broadcaster = new GameBroadcaster(messagingTemplate, new ObjectMapper(), subscriptions, 1, 16);
+    AtomicInteger encoded = new AtomicInteger();
+
+    broadcaster.broadcast(7L, "/topic/game/7/delta.bin", () -> {
+      encoded.incrementAndGet();
+      return new byte[0];
+    }, GameDeltaCodec.MIME_TYPE);
+    broadcaster.broadcast(7L, "/topic/game/7/delta", Map.of("sequence", 1));
+
+    verify(messagingTemplate, timeout(5000)).send(eq("/topic/game/7/delta"), any());
+    verify(messagingTemplate, never()).send(eq("/topic/game/7/delta.bin"), any());
+    assertEquals(0, encoded.get());
+    assertFalse(broadcaster.hasSubscribers("/topic/game/7/delta.bin"));
+    broadcaster.shutdown();
+  }
+
+  @Test
+  void subscribersAreCountedUntilUnsubscribeOrDisconnect() {
+    TopicSubscriptions subscriptions = new TopicSubscriptions();
+    subscriptions.preSend(frame(StompCommand.SUBSCRIBE, "a", "sub-0", "/topic/game/7/delta"), null);
+    subscriptions.preSend(frame(StompCommand.SUBSCRIBE, "b", "sub-0", "/topic/game/7/delta"), null);
+
+    subscriptions.preSend(frame(StompCommand.UNSUBSCRIBE, "a", "sub-0", null), null);
+    assertTrue(subscriptions.hasSubscribers("/topic/game/7/delta"));
+
+    subscriptions.preSend(frame(StompCommand.DISCONNECT, "b", null, null), null);
+    assertFalse(subscriptions.hasSubscribers("/topic/game/7/delta"));
+  }
+
+  private static TopicSubscriptions subscribed(String... destinations) {
+    TopicSubscriptions subscriptions = new TopicSubscriptions();
+    for (int i = 0; i < destinations.length; i++) {
+      subscriptions.preSend(frame(StompCommand.SUBSCRIBE, "session", "sub-" + i, destinations[i]), null);
+    }
+    return subscriptions;
+  }
+
+  private static Message<byte[]> frame(StompCommand command, String sessionId, String subscriptionId,
+                                       String destination) {
+    StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+    accessor.setSessionId(sessionId);
+    accessor.setSubscriptionId(subscriptionId);
+    accessor.setDestination(destination);
+    accessor.setLeaveMutable(true);
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+}
@@ -0,0 +1,122 @@
+package org.example.marrakech.websocket;
+
+import org.example.marrakech.dto.CarpetPlacedMessage;
+import org.example.marrakech.dto.FieldUpdateMessage;
+import org.example.marrakech.dto.GameDelta;
+import org.example.marrakech.dto.PaymentNotificationMessage;
+import org.example.marrakech.dto.PlayerScore;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameDeltaCodecTest {
+
+  private static final List<String> PLAYERS = List.of("lera", "vlad", "sasha", "nika");
+
+  @Test
+  void turnDeltaRoundTrip() {
+    GameDelta delta = new GameDelta(42L);
+    delta.setEpoch(1_500_000_000L);
+    delta.setSequence(300L);
+    delta.setVersion(17L);
+    delta.setDiceRoll(3);
+    delta.setAssamPositionX(6);
+    delta.setAssamPositionY(2);
+    delta.setAssamDirection("left");
+    delta.addPayment(new PaymentNotificationMessage(42L, "vlad", "nika", 5));
+    delta.setCarpet(new CarpetPlacedMessage(5, 2, 5, 3, "blue", "vlad"));
+    delta.setCurrentTurnUsername("sasha");
+    delta.setMoveNumber(9);
+
+    GameDelta decoded = roundTrip(delta);
+
+    assertEquals(42L, decoded.getGameId());
+    assertEquals(1_500_000_000L, decoded.getEpoch());
+    assertEquals(300L, decoded.getSequence());
+    assertEquals(17L, decoded.getVersion());
+    assertEquals(3, decoded.getDiceRoll());
+    assertEquals(6, decoded.getAssamPositionX());
+    assertEquals(2, decoded.getAssamPositionY());
+    assertEquals("left", decoded.getAssamDirection());
+    assertEquals(List.of(new PaymentNotificationMessage(42L, "vlad", "nika", 5)), decoded.getPayments());
+    assertEquals(5, decoded.getCarpet().getFirstX());
+    assertEquals(3, decoded.getCarpet().getSecondY());
+    assertEquals("blue", decoded.getCarpet().getColor());
+    assertEquals("vlad", decoded.getCarpet().getUsername());
+    assertEquals("sasha", decoded.getCurrentTurnUsername());
+    assertEquals(9, decoded.getMoveNumber());
+    assertNull(decoded.getStatus());
+    assertNull(decoded.getResults());
+  }
+
+  @Test
+  void eliminationAndResultsRoundTrip() {
+    GameDelta delta = new GameDelta(1L);
+    delta.setSequence(2L);
+    delta.addFieldUpdates(List.of(
+        new FieldUpdateMessage.CellUpdate(0, 0, null),
+        new FieldUpdateMessage.CellUpdate(6, 6, "yellow")));
+    delta.addEliminated("lera");
+    delta.setStatus("finished");
+    delta.setWinnerUsername("nika");
+    delta.setResults(List.of(new PlayerScore("nika", 40, 12, 52, 1)));
+
+    GameDelta decoded = roundTrip(delta);
+
+    assertEquals(delta.getFieldUpdates(), decoded.getFieldUpdates());
+    assertEquals(List.of("lera"), decoded.getEliminatedUsernames());
+    assertEquals("finished", decoded.getStatus());
+    assertEquals("nika", decoded.getWinnerUsername());
+    PlayerScore score = decoded.getResults().getFirst();
+    assertEquals("nika", score.getUsername());
+    assertEquals(40, score.getCoins());
+    assertEquals(12, score.getVisibleCarpetTiles());
+    assertEquals(52, score.getTotalScore());
+    assertEquals(1, score.getPlace());
+  }
+
+  @Test
+  void statusIsMatchedRegardlessOfDefaultLocale() {
+    Locale defaultLocale = Locale.getDefault();
+    Locale.setDefault(Locale.forLanguageTag("tr"));
+    try {
+      GameDelta delta = new GameDelta(1L);
+      delta.setStatus("IN_PROGRESS");
+
+      assertEquals("in_progress", roundTrip(delta).getStatus());
+    } finally {
+      Locale.setDefault(defaultLocale);
+    }
+  }
+
+  @Test
+  void playerWithoutSlotIsWrittenByName() {
+    GameDelta delta = new GameDelta(1L);
+    delta.setLeftUsername("гость");
+
+    assertEquals("гость", roundTrip(delta).getLeftUsername());
+  }
+
+  @Test
+  void coordinatesAndPlayersTakeOneByte() {
+    GameDelta delta = new GameDelta(1L);
+    delta.setSequence(1L);
+    delta.setAssamPositionX(3);
+    delta.setAssamPositionY(3);
+    delta.setAssamDirection("up");
+    delta.setCurrentTurnUsername("vlad");
+
+    byte[] encoded = GameDeltaCodec.encode(delta, PLAYERS::indexOf);
+
+    // версия формата, gameId, sequence, маска (2 байта), Ассам, игрок
+    assertEquals(7, encoded.length, Arrays.toString(encoded));
+  }
+
+  private static GameDelta roundTrip(GameDelta delta) {
+    return GameDeltaCodec.decode(GameDeltaCodec.encode(delta, PLAYERS::indexOf), PLAYERS::get);
+  }
+}